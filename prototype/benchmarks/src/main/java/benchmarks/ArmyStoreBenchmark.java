@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import processing.Army;
+import processing.ArmyStore;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Adds every army of a grid to a store, then walks every board's armies as resolution does.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArmyStoreBenchmark {
+    private static final int ROWS = 100;
+
+    @Param({"100", "10000"})
+    public int columns;
+
+    private ArrayList<Army> armies;
+    private ArmyStore store;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        armies = SyntheticGames.grid(ROWS, columns, 3);
+        store = new ArmyStore(armies.size());
+        armies.forEach(store::add);
+    }
+
+    @Benchmark
+    public ArmyStore addArmies()
+    {
+        ArmyStore newStore = new ArmyStore();
+        for (Army army : armies)
+        {
+            newStore.add(army.getX(), army.getY(), army.getZ(), army.getOwner());
+        }
+        return newStore;
+    }
+
+    @Benchmark
+    public void scanBoards(Blackhole blackhole)
+    {
+        for (int y = -ROWS / 2; y < ROWS / 2; y++)
+        {
+            for (int x = 0; x < columns; x++)
+            {
+                for (int army = store.firstArmyOnBoard(x, y); army >= 0; army = store.nextArmyOnBoard(army))
+                {
+                    blackhole.consume(store.getZ(army));
+                }
+            }
+        }
+    }
+}
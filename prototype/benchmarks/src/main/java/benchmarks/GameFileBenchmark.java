@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.GameFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameFileBenchmark {
+    @Param({"10", "100"})
+    public int rows;
+
+    @Param({"10", "100"})
+    public int columns;
+
+    private Game game;
+    private Path savePath;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException
+    {
+        game = new Game(SyntheticGames.grid(rows, columns, 3));
+        game.resolveOrders(game.parseOrders(SyntheticGames.gridOrders(rows, columns, 3, 42)), false);
+        savePath = Files.createTempFile("game", ".5ddp");
+        GameFile.save(game, savePath);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException
+    {
+        Files.deleteIfExists(savePath);
+    }
+
+    @Benchmark
+    public Path save() throws IOException
+    {
+        GameFile.save(game, savePath);
+        return savePath;
+    }
+
+    @Benchmark
+    public Game load() throws IOException
+    {
+        return GameFile.load(savePath);
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.Instrumentation;
+import processing.ResolutionStats;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Plays the same turns as TurnCostBenchmark with no metrics sink, with one installed, and with one that also measures
+// allocation in every resolution. Without a sink a turn should cost the same as it always has.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBenchmark {
+    private static final int ROWS = 10;
+    private static final int HISTORY = 100;
+
+    @Param({"off", "on", "sampled"})
+    public String metrics;
+
+    private Game game;
+    private int activeX;
+    private ArrayList<String> ordersText = new ArrayList<>();
+
+    @Setup(Level.Iteration)
+    public void generate()
+    {
+        game = new Game(SyntheticGames.grid(ROWS, HISTORY, 3));
+        activeX = HISTORY - 1;
+        if (metrics.equals("off"))
+        {
+            Instrumentation.uninstall();
+        }
+        else
+        {
+            Instrumentation.install(new ResolutionStats(), metrics.equals("sampled") ? 1 : 0);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void uninstall()
+    {
+        Instrumentation.uninstall();
+    }
+
+    @Benchmark
+    public Game resolveOrders()
+    {
+        ordersText.clear();
+        for (int z = 0; z < 3; z++)
+        {
+            ordersText.add(activeX + ",0," + z);
+        }
+        activeX++;
+        game.resolveOrders(game.parseOrders(ordersText), false);
+        return game;
+    }
+}
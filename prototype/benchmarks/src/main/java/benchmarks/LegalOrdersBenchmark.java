@@ -0,0 +1,70 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.LegalOrders;
+import processing.MapTopology;
+import processing.OrderVisitor;
+import processing.Player;
+import processing.RandomPolicy;
+import processing.SimulationStats;
+import processing.Simulator;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Lists every legal order for one player in a game that's been played with random orders for a number of turns, on the
+// original three-province board or on a 75-province grid.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegalOrdersBenchmark {
+    @Param({"10", "40"})
+    public int turns;
+
+    @Param({"default", "grid:15x5"})
+    public String map;
+
+    private Game game;
+    private final OrderCounter counter = new OrderCounter();
+
+    @Setup(Level.Trial)
+    public void playGame() throws IOException
+    {
+        MapTopology gameMap = map.equals("default") ? MapTopology.DEFAULT : Simulator.parseMap(map);
+        game = new Simulator(new RandomPolicy(), new RandomPolicy(), turns, gameMap).play(1, new SimulationStats());
+    }
+
+    @Benchmark
+    public long listOrders()
+    {
+        counter.orders = 0;
+        LegalOrders.forPlayer(game, Player.BLUE, counter);
+        return counter.orders;
+    }
+
+    private static class OrderCounter implements OrderVisitor {
+        private long orders;
+
+        @Override
+        public void hold(long location)
+        {
+            orders++;
+        }
+
+        @Override
+        public void move(long location, long destination)
+        {
+            orders++;
+        }
+
+        @Override
+        public void support(long location, long supportedLocation, long supportedDestination)
+        {
+            orders++;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Army;
+import processing.Game;
+import processing.Order;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveChainBenchmark {
+    @Param({"10", "100", "1000"})
+    public int chainLength;
+
+    private ArrayList<Army> armies;
+    private ArrayList<String> ordersText;
+    private Game game;
+    private ArrayList<Order> orders;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        armies = SyntheticGames.chain(chainLength);
+        ordersText = SyntheticGames.chainOrders(chainLength);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset()
+    {
+        game = new Game(armies);
+        orders = game.parseOrders(ordersText);
+    }
+
+    @Benchmark
+    public Game resolveChain()
+    {
+        game.resolveOrders(orders, false);
+        return game;
+    }
+}
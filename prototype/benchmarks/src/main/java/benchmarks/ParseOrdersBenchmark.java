@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.Order;
+import processing.OrderParser;
+import processing.Retreat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseOrdersBenchmark {
+    @Param({"300", "3000", "30000"})
+    public int orders;
+
+    private Game game;
+    private ArrayList<String> ordersText;
+    private ArrayList<String> retreatsText;
+    private ByteBuffer ordersFile;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        game = new Game();
+        ordersText = SyntheticGames.gridOrders(orders / 3, 2, 3, 5);
+        retreatsText = new ArrayList<>();
+        for (String orderText : ordersText)
+        {
+            String location = orderText.split(" ")[0];
+            retreatsText.add(retreatsText.size() % 2 == 0 ? location + " d" : location + " m " + location);
+        }
+        ordersFile = ByteBuffer.wrap((String.join("\n", ordersText) + "\nr\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public ArrayList<Order> parseOrders()
+    {
+        return game.parseOrders(ordersText);
+    }
+
+    // The same orders read straight from the bytes of an order file.
+    @Benchmark
+    public ArrayList<Order> parseOrdersFile()
+    {
+        return new OrderParser(ordersFile).readOrders();
+    }
+
+    @Benchmark
+    public ArrayList<Retreat> parseRetreats()
+    {
+        return game.parseRetreats(retreatsText);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.Replay;
+import processing.TurnLog;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Logs a few hundred turns of holds on a grid, then rebuilds the state halfway through, first from a fresh replay (which
+// has to resolve every turn up to there) and then from one that has already been through and kept its snapshots.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+    private static final int ROWS = 10;
+    private static final int COLUMNS = 100;
+    private static final int TURNS = 500;
+
+    @Param({"16", "128"})
+    public int snapshotInterval;
+
+    private TurnLog log;
+    private Replay warmReplay;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        Game game = new Game(SyntheticGames.grid(ROWS, COLUMNS, 3));
+        ArrayList<String> ordersText = new ArrayList<>();
+        for (int x = COLUMNS - 1; x < COLUMNS - 1 + TURNS; x++)
+        {
+            ordersText.clear();
+            for (int z = 0; z < 3; z++)
+            {
+                ordersText.add(x + ",0," + z);
+            }
+            game.resolveOrders(game.parseOrders(ordersText), false);
+        }
+        log = game.getTurnLog();
+        warmReplay = new Replay(log, snapshotInterval);
+        warmReplay.verify();
+    }
+
+    @Benchmark
+    public Game replayFromStart()
+    {
+        return new Replay(log, snapshotInterval).replayTo(TURNS / 2);
+    }
+
+    @Benchmark
+    public Game fastForward()
+    {
+        return warmReplay.replayTo(TURNS / 2);
+    }
+}
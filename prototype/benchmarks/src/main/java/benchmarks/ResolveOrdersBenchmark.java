@@ -0,0 +1,74 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Army;
+import processing.Game;
+import processing.Order;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveOrdersBenchmark {
+    @Param({"10", "100"})
+    public int rows;
+
+    @Param({"1", "10"})
+    public int columns;
+
+    @Param({"1", "3"})
+    public int armiesPerBoard;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private ArrayList<Army> armies;
+    private ArrayList<String> ordersText;
+    private Game game;
+    private ArrayList<Order> orders;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        armies = SyntheticGames.grid(rows, columns, armiesPerBoard);
+        ordersText = SyntheticGames.gridOrders(rows, columns, armiesPerBoard, 5);
+        if (parallel)
+        {
+            checkParallelMatchesSerial();
+        }
+    }
+
+    // Resolving in parallel has to give exactly the game resolving serially does, or there's nothing to compare.
+    private void checkParallelMatchesSerial()
+    {
+        Game serial = new Game(armies);
+        serial.resolveOrders(serial.parseOrders(ordersText), false);
+        Game pooled = new Game(armies);
+        pooled.resolveOrders(pooled.parseOrders(ordersText), false, ForkJoinPool.commonPool());
+        if (serial.getSnapshot().getChecksum() != pooled.getSnapshot().getChecksum()
+                || serial.getPositionHash() != pooled.getPositionHash())
+        {
+            throw new IllegalStateException("Parallel resolution gave a different game from serial resolution");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void reset()
+    {
+        game = new Game(armies);
+        orders = game.parseOrders(ordersText);
+    }
+
+    @Benchmark
+    public Game resolveOrders()
+    {
+        game.resolveOrders(orders, false, parallel ? ForkJoinPool.commonPool() : null);
+        return game;
+    }
+}
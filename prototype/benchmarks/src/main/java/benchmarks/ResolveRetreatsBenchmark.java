@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Army;
+import processing.Game;
+import processing.Retreat;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveRetreatsBenchmark {
+    @Param({"10", "100"})
+    public int rows;
+
+    private ArrayList<Army> armies;
+    private ArrayList<String> ordersText;
+    private Game game;
+    private ArrayList<Retreat> retreats;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        armies = SyntheticGames.branching(rows);
+        ordersText = SyntheticGames.branchingOrders(rows);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset()
+    {
+        game = new Game(armies);
+        game.resolveOrders(game.parseOrders(ordersText), false);
+        retreats = game.parseRetreats(SyntheticGames.retreatOrders(game.getRetreatingArmies()));
+    }
+
+    @Benchmark
+    public Game resolveRetreats()
+    {
+        game.resolveRetreats(retreats);
+        return game;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.RetentionPolicy;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Plays a long game in which every timeline's armies support themselves to hold each turn, so every turn adds a board to
+// each row and a displayed order for each army. Without a retention policy the working set, displayed orders and history
+// keep growing through the iteration; with one they stay bounded, at the cost of an archiving pass every few turns.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetentionBenchmark {
+    private static final int ROWS = 10;
+    private static final int COLUMNS = 100;
+
+    @Param({"all,all,all", "16,16,16"})
+    public String retention;
+
+    private Game game;
+    private int activeX;
+    private ArrayList<String> ordersText = new ArrayList<>();
+
+    // Turns build up history of their own, so start again each iteration.
+    @Setup(Level.Iteration)
+    public void generate()
+    {
+        game = new Game(SyntheticGames.grid(ROWS, COLUMNS, 3));
+        game.setRetentionPolicy(RetentionPolicy.parse(retention));
+        activeX = COLUMNS - 1;
+    }
+
+    @Benchmark
+    public Game resolveOrders()
+    {
+        ordersText.clear();
+        for (int y = -(ROWS / 2); y < ROWS - ROWS / 2; y++)
+        {
+            for (int z = 0; z < 3; z++)
+            {
+                String location = activeX + "," + y + "," + z;
+                ordersText.add(location + " s " + location + " " + location);
+            }
+        }
+        activeX++;
+        game.resolveOrders(game.parseOrders(ordersText), false);
+        return game;
+    }
+}
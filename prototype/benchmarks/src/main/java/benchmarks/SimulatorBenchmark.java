@@ -0,0 +1,44 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.GreedyPolicy;
+import processing.OrderPolicy;
+import processing.RandomPolicy;
+import processing.SimulationStats;
+import processing.Simulator;
+
+import java.util.concurrent.TimeUnit;
+
+// Plays whole self-play games from successive seeds, with both players on the same policy.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatorBenchmark {
+    @Param({"random", "greedy"})
+    public String policy;
+
+    @Param({"20"})
+    public int turns;
+
+    private Simulator simulator;
+    private SimulationStats stats;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void createSimulator()
+    {
+        OrderPolicy orderPolicy = policy.equals("greedy") ? new GreedyPolicy() : new RandomPolicy();
+        simulator = new Simulator(orderPolicy, orderPolicy, turns);
+        stats = new SimulationStats();
+    }
+
+    @Benchmark
+    public Game playGame()
+    {
+        return simulator.play(seed++, stats);
+    }
+}
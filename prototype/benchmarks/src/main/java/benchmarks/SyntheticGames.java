@@ -0,0 +1,145 @@
+package benchmarks;
+
+import processing.Army;
+import processing.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class SyntheticGames {
+    private SyntheticGames()
+    {
+    }
+
+    private static int firstRow(int rows)
+    {
+        return -(rows / 2);
+    }
+
+    // A rectangular multiverse of rows timelines, each columns boards long, with up to three armies per board.
+    public static ArrayList<Army> grid(int rows, int columns, int armiesPerBoard)
+    {
+        ArrayList<Army> armies = new ArrayList<>();
+        for (int y = firstRow(rows); y < firstRow(rows) + rows; y++)
+        {
+            for (int x = 0; x < columns; x++)
+            {
+                for (int z = 0; z < armiesPerBoard; z++)
+                {
+                    armies.add(new Army(x, y, z, ((x + y + z) & 1) == 0 ? Player.BLUE : Player.ORANGE));
+                }
+            }
+        }
+        return armies;
+    }
+
+    // Orders for every army on the active (last) column of a grid, mixing holds, moves and supports.
+    public static ArrayList<String> gridOrders(int rows, int columns, int armiesPerBoard, long seed)
+    {
+        Random random = new Random(seed);
+        ArrayList<String> orders = new ArrayList<>();
+        int x = columns - 1;
+        for (int y = firstRow(rows); y < firstRow(rows) + rows; y++)
+        {
+            for (int z = 0; z < armiesPerBoard; z++)
+            {
+                String location = x + "," + y + "," + z;
+                int choice = random.nextInt(10);
+                if (choice < 3)
+                {
+                    orders.add(location);
+                }
+                else if (choice < 7)
+                {
+                    orders.add(location + " m " + randomDestination(random, rows, columns, x, y));
+                }
+                else
+                {
+                    int supportedY = clampRow(rows, y + random.nextInt(3) - 1);
+                    String supportedLocation = x + "," + supportedY + "," + random.nextInt(armiesPerBoard);
+                    String supportedDestination = random.nextBoolean()
+                            ? supportedLocation : randomDestination(random, rows, columns, x, y);
+                    orders.add(location + " s " + supportedLocation + " " + supportedDestination);
+                }
+            }
+        }
+        return orders;
+    }
+
+    private static String randomDestination(Random random, int rows, int columns, int x, int y)
+    {
+        int destinationX = columns > 1 ? x - random.nextInt(2) : x;
+        int destinationY = clampRow(rows, y + random.nextInt(3) - 1);
+        return destinationX + "," + destinationY + "," + random.nextInt(3);
+    }
+
+    private static int clampRow(int rows, int y)
+    {
+        return Math.max(firstRow(rows), Math.min(firstRow(rows) + rows - 1, y));
+    }
+
+    // One board per row, with a chain of armies each moving into the next row's army's province.
+    public static ArrayList<Army> chain(int chainLength)
+    {
+        ArrayList<Army> armies = new ArrayList<>();
+        for (int y = 0; y < chainLength; y++)
+        {
+            armies.add(new Army(0, y, 0, (y & 1) == 0 ? Player.BLUE : Player.ORANGE));
+        }
+        armies.add(new Army(0, chainLength, 2, Player.ORANGE));
+        return armies;
+    }
+
+    public static ArrayList<String> chainOrders(int chainLength)
+    {
+        ArrayList<String> orders = new ArrayList<>();
+        for (int y = 0; y < chainLength; y++)
+        {
+            orders.add("0," + y + ",0 m 0," + (y + 1) + ",0");
+        }
+        orders.add("0," + chainLength + ",2");
+        return orders;
+    }
+
+    // Two boards per row. Each row's orders send a supported army back in time onto an occupied province, branching
+    // a new timeline in which the duplicated occupant has to retreat.
+    public static ArrayList<Army> branching(int rows)
+    {
+        ArrayList<Army> armies = new ArrayList<>();
+        for (int y = 0; y < rows; y++)
+        {
+            armies.add(new Army(0, y, 0, Player.BLUE));
+            armies.add(new Army(0, y, 2, Player.ORANGE));
+            armies.add(new Army(1, y, 0, Player.BLUE));
+            armies.add(new Army(1, y, 1, Player.BLUE));
+            armies.add(new Army(1, y, 2, Player.ORANGE));
+        }
+        return armies;
+    }
+
+    public static ArrayList<String> branchingOrders(int rows)
+    {
+        ArrayList<String> orders = new ArrayList<>();
+        for (int y = 0; y < rows; y++)
+        {
+            orders.add("1," + y + ",0 m 0," + y + ",2");
+            orders.add("1," + y + ",1 s 1," + y + ",0 0," + y + ",2");
+            orders.add("1," + y + ",2");
+        }
+        return orders;
+    }
+
+    // Alternately disbands retreating armies and moves them to the empty middle province of their board.
+    public static ArrayList<String> retreatOrders(List<Army> retreatingArmies)
+    {
+        ArrayList<String> retreats = new ArrayList<>();
+        for (int i = 0; i < retreatingArmies.size(); i++)
+        {
+            Army army = retreatingArmies.get(i);
+            String location = army.getX() + "," + army.getY() + "," + army.getZ();
+            retreats.add((i & 1) == 0 ? location + " m " + army.getX() + "," + army.getY() + ",1" : location + " d");
+        }
+        return retreats;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+import processing.Player;
+import processing.RandomPolicy;
+import processing.SearchResult;
+import processing.SimulationStats;
+import processing.Simulator;
+import processing.TreeSearch;
+
+import java.util.concurrent.TimeUnit;
+
+// Searches for blue's orders with a fixed number of playouts, from a game that's been played with random orders for a
+// number of turns. Playouts per second is the number of playouts over the time per search.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeSearchBenchmark {
+    @Param({"0", "10"})
+    public int turns;
+
+    @Param({"1"})
+    public int threads;
+
+    @Param({"500"})
+    public int playouts;
+
+    private Game game;
+    private TreeSearch search;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void createSearch()
+    {
+        game = new Simulator(new RandomPolicy(), new RandomPolicy(), turns).play(1, new SimulationStats());
+        search = new TreeSearch(8, 6, threads);
+    }
+
+    @Benchmark
+    public SearchResult search()
+    {
+        return search.search(game, Player.BLUE, Long.MAX_VALUE / 2_000_000, playouts, seed++);
+    }
+}
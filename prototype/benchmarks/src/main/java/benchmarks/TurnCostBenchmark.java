@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Plays turns of holds on a single timeline of games with more and more history behind them. The cost of a turn should
+// depend on its orders, not on how many boards have built up.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurnCostBenchmark {
+    private static final int ROWS = 10;
+
+    @Param({"10", "1000", "10000"})
+    public int history;
+
+    private Game game;
+    private int activeX;
+    private ArrayList<String> ordersText = new ArrayList<>();
+
+    // Turns build up history of their own, so start again each iteration.
+    @Setup(Level.Iteration)
+    public void generate()
+    {
+        game = new Game(SyntheticGames.grid(ROWS, history, 3));
+        activeX = history - 1;
+    }
+
+    // Each turn's holds make a new board at the end of the first timeline, which is where the next turn's orders go.
+    @Benchmark
+    public Game resolveOrders()
+    {
+        ordersText.clear();
+        for (int z = 0; z < 3; z++)
+        {
+            ordersText.add(activeX + ",0," + z);
+        }
+        activeX++;
+        game.resolveOrders(game.parseOrders(ordersText), false);
+        return game;
+    }
+}
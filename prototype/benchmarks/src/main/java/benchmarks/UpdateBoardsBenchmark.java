@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import processing.Game;
+
+import java.util.concurrent.TimeUnit;
+
+// Looks every army of a synthetic multiverse up against the board index. updateBoards only looks at armies added since
+// it last ran, so each invocation first marks them all as new again.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBoardsBenchmark {
+    @Param({"10", "100"})
+    public int rows;
+
+    @Param({"10", "100"})
+    public int columns;
+
+    private Game game;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        game = new Game(SyntheticGames.grid(rows, columns, 3));
+    }
+
+    @Setup(Level.Invocation)
+    public void reset()
+    {
+        game.revisitAllArmies();
+    }
+
+    @Benchmark
+    public Game updateBoards()
+    {
+        game.updateBoards();
+        return game;
+    }
+}
@@ -4,249 +4,568 @@ import processing.*;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.QuadCurve2D;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.function.Consumer;
 
+// Draws each board (with its armies) once into a cached tile, and only redraws a tile when the board's snapshot changes,
+// i.e. when it gains armies or is deactivated. Orders are drawn over the tiles. Updates only repaint the regions of the
+// boards and orders that changed.
+//
+// The view can be dragged around and zoomed with the mouse wheel. Only boards in view are looked at, found through the
+// snapshot's board map, and when zoomed far out boards are drawn as plain coloured summaries without any orders.
+//
+// Provinces are placed where the game's map puts them. The original three-province map is drawn as a triangle split into
+// provinces; any other map is drawn as a dot for each province with lines between those that border each other.
 public class GameDisplay extends JPanel {
-    private ArrayList<Board> boards;
-    private ArrayList<Army> armies;
-    private ArrayList<Order> orders;
+    private static final int SIDE = 150;
+    private static final double SPACING = 1.3;
+    private static final double BOARD_PITCH = SIDE * SPACING;
+    private static final int CENTRE_Y = 540;
+    private static final int ARMY_SIZE = 20;
+    private static final double ROOT_3 = Math.sqrt(3);
 
-    public GameDisplay(ArrayList<Board> boardList, ArrayList<Army> armyList, ArrayList<Order> displayedOrders)
-    {
-        boards = boardList;
-        armies = armyList;
-        orders = displayedOrders;
+    private static final double MIN_SCALE = 0.02;
+    private static final double MAX_SCALE = 4;
+    private static final double SUMMARY_SCALE = 0.3;
+    private static final double ZOOM_STEP = 1.1;
+    private static final int MAX_TILES = 256;
+
+    private static final Color BLUE = new Color(0, 0, 255);
+    private static final Color ORANGE = new Color(255, 165, 0);
+    private static final Color ACTIVE_BLUE_PROVINCE = new Color(0, 0, 255, 63);
+    private static final Color INACTIVE_BLUE_PROVINCE = new Color(0, 0, 255, 15);
+    private static final Color ACTIVE_ORANGE_PROVINCE = new Color(255, 165, 0, 63);
+    private static final Color INACTIVE_ORANGE_PROVINCE = new Color(255, 165, 0, 15);
+    private static final Color INACTIVE_OUTLINE = new Color(0, 0, 0, 63);
+    private static final Color ACTIVE_NEUTRAL_SUMMARY = new Color(0, 0, 0, 63);
+    private static final Color INACTIVE_NEUTRAL_SUMMARY = new Color(0, 0, 0, 15);
+    private static final Stroke LINE = new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 0, null, 0);
+    private static final Stroke DASHED_LINE = new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 0, new float[] {5}, 0);
+
+    // Board shapes relative to the centre of the board, where its three provinces meet.
+    private static final Shape BLUE_PROVINCE = new Province(
+            new Point2D.Double(SIDE / -2.0, SIDE / 6.0 * ROOT_3),
+            new Point2D.Double(0, SIDE / 6.0 * ROOT_3),
+            new Point2D.Double(0, 0),
+            new Point2D.Double(SIDE / -4.0, SIDE / -12.0 * ROOT_3));
+    private static final Shape ORANGE_PROVINCE = new Province(
+            new Point2D.Double(0, 0),
+            new Point2D.Double(0, SIDE / 6.0 * ROOT_3),
+            new Point2D.Double(SIDE / 2.0, SIDE / 6.0 * ROOT_3),
+            new Point2D.Double(SIDE / 4.0, SIDE / -12.0 * ROOT_3));
+    private static final Shape[] BOARD_LINES = {
+            new Triangle(
+                    new Point2D.Double(SIDE / -2.0, SIDE / 6.0 * ROOT_3),
+                    new Point2D.Double(SIDE / 2.0, SIDE / 6.0 * ROOT_3),
+                    new Point2D.Double(0, SIDE / -3.0 * ROOT_3)),
+            new Line2D.Double(0, SIDE / 6.0 * ROOT_3, 0, 0),
+            new Line2D.Double(SIDE / 4.0, SIDE / -12.0 * ROOT_3, 0, 0),
+            new Line2D.Double(SIDE / -4.0, SIDE / -12.0 * ROOT_3, 0, 0)
+    };
+
+    // Tiles cover the board plus a margin for the outline's stroke.
+    private static final int TILE_MARGIN = 2;
+    private static final int TILE_LEFT = -SIDE / 2 - TILE_MARGIN;
+    private static final int TILE_TOP = (int) Math.floor(SIDE / -3.0 * ROOT_3) - TILE_MARGIN;
+    private static final int TILE_WIDTH = SIDE + 2 * TILE_MARGIN;
+    private static final int TILE_HEIGHT = (int) Math.ceil(SIDE / 2.0 * ROOT_3) + 2 * TILE_MARGIN + 1;
+
+    // Recently drawn tiles, least recently used first.
+    private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest)
+        {
+            return size() > MAX_TILES;
+        }
+    };
+    private GameSnapshot snapshot;
+    private MapTopology map = MapTopology.DEFAULT;
+    private double armySize = ARMY_SIZE;
+    private List<BoardSnapshot> boards = Collections.emptyList();
+    private int minBoardX, maxBoardX, minBoardY, maxBoardY;
+    private List<Order> orders = Collections.emptyList();
+    private final HashMap<Long, ArrayList<Order>> ordersByBoard = new HashMap<>();
+
+    // Screen position = world position * scale + offset, where world positions are those of the unzoomed display.
+    private double scale = 1;
+    private double offsetX;
+    private double offsetY;
+    private Point dragStart;
+
+    private static class Tile {
+        private final BoardSnapshot board;
+        private final Rectangle bounds;
+        private BufferedImage image;
+
+        Tile(BoardSnapshot boardSnapshot)
+        {
+            board = boardSnapshot;
+            bounds = getTileBounds(board);
+        }
     }
 
-    @Override
-    protected void paintComponent(Graphics g)
+    public GameDisplay()
     {
-        super.paintComponent(g);
-        int side = 150;
-        double spacing = 1.3;
-        Graphics2D g2d = (Graphics2D) g.create();
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e)
+            {
+                dragStart = e.getPoint();
+            }
 
-        for (Board board : boards)
-        {
-
-            g2d.setColor(board.isActive() ? new Color(0,0,255,63) : new Color(0, 0, 255, 15));
-            g2d.fill(new Province(
-                    new Point2D.Double(
-                            side / 2.0 + board.getPosition()[0] * side * spacing,
-                            540 + (side / 6.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            side + board.getPosition()[0] * side * spacing,
-                            540 + (side / 6.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            side + board.getPosition()[0] * side * spacing,
-                            540 - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            3 * side / 4.0 + board.getPosition()[0] * side * spacing,
-                            540 - (side / 12.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing)
-            ));
-
-            g2d.setColor(board.isActive() ? new Color(255,165,0,63) : new Color(255, 165, 0, 15));
-            g2d.fill(new Province(
-                    new Point2D.Double(
-                            side + board.getPosition()[0] * side * spacing,
-                            540 - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            side + board.getPosition()[0] * side * spacing,
-                            540 + (side / 6.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            side * 3 / 2.0 + board.getPosition()[0] * side * spacing,
-                            540 + (side / 6.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            5 * side / 4.0 + board.getPosition()[0] * side * spacing,
-                            540 - (side / 12.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing)
-            ));
-
-            g2d.setPaint(board.isActive() ? Color.BLACK : new Color(0, 0, 0, 63));
-            g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 0, null, 0));
-            Triangle triangle = new Triangle(
-                    new Point2D.Double(
-                            side / 2.0 + board.getPosition()[0] * side * spacing,
-                            540 + (side / 6.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            side * 3 / 2.0 + board.getPosition()[0] * side * spacing,
-                            540 + (side / 6.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    new Point2D.Double(
-                            side + board.getPosition()[0] * side * spacing,
-                            540 - (side / 3.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing));
-            g2d.draw(triangle);
-            g2d.drawLine(
-                    (int) (side + board.getPosition()[0] * side * spacing),
-                    (int) (540 + (side / 6.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    (int) (side + board.getPosition()[0] * side * spacing),
-                    (int) (540 - board.getPosition()[1] * side * spacing));
-            g2d.drawLine(
-                    (int) (5 * side / 4 + board.getPosition()[0] * side * spacing),
-                    (int) (540 - (side / 12.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    (int) (side + board.getPosition()[0] * side * spacing),
-                    (int) (540 - board.getPosition()[1] * side * spacing));
-            g2d.drawLine(
-                    (int) (3 * side / 4 + board.getPosition()[0] * side * spacing),
-                    (int) (540 - (side / 12.0) * Math.sqrt(3) - board.getPosition()[1] * side * spacing),
-                    (int) (side + board.getPosition()[0] * side * spacing),
-                    (int) (540 - board.getPosition()[1] * side * spacing));
-        }
-
-        int armyScaling = 20;
-        double offsetX, offsetY;
-        for (Army army : armies) {
-            switch (army.getOwner()) {
-                case BLUE:
-                    g2d.setColor(new Color(0, 0, 255));
-                    break;
-                case ORANGE:
-                    g2d.setColor(new Color(255, 165, 0));
-                    break;
-                default:
-                    g2d.setColor(Color.GRAY);
+            @Override
+            public void mouseDragged(MouseEvent e)
+            {
+                if (dragStart != null)
+                {
+                    offsetX += e.getX() - dragStart.x;
+                    offsetY += e.getY() - dragStart.y;
+                    dragStart = e.getPoint();
+                    repaint();
+                }
             }
-            switch (army.getLocation()[2])
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e)
             {
-                case 0:
-                    offsetX = side / -4.0;
-                    offsetY = side * Math.sqrt(3) / 12.0;
-                    break;
-                case 1:
-                    offsetX = 0;
-                    offsetY = side * Math.sqrt(3) / -6.0;
-                    break;
-                default:
-                    offsetX = side / 4.0;
-                    offsetY = side * Math.sqrt(3) / 12.0;
+                // Zoom around the mouse so the point under it stays put.
+                double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation())));
+                offsetX = e.getX() - (e.getX() - offsetX) * newScale / scale;
+                offsetY = e.getY() - (e.getY() - offsetY) * newScale / scale;
+                scale = newScale;
+                repaint();
             }
-            g2d.fillOval(
-                    (int) (side + army.getLocation()[0] * side * spacing + offsetX - armyScaling / 2.0),
-                    (int) (540 - army.getLocation()[1] * side * spacing + offsetY - armyScaling / 2.0),
-                    armyScaling, armyScaling);
-        }
+        };
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
+    }
 
-        double offsetXLocation, offsetYLocation, offsetXDestination, offsetYDestination, offsetXSupport, offsetYSupport;
-        for (Order order : orders)
+    // Shows a new state of the game. Must be called on the event dispatch thread.
+    public void update(GameSnapshot newSnapshot, List<Order> displayedOrders)
+    {
+        GameSnapshot previous = snapshot;
+        List<BoardSnapshot> newBoards = newSnapshot.getBoards();
+        Rectangle view = toWorld(new Rectangle(0, 0, getWidth(), getHeight()));
+        if (!newSnapshot.getMap().equals(map))
         {
-            g2d.setColor(order.getPlayer() == Player.BLUE ? new Color(0, 0, 255) : new Color(255, 165, 0));
-            if (order instanceof Move)
+            setMap(newSnapshot.getMap());
+            previous = null;
+            tiles.clear();
+            repaint();
+        }
+        else if (previous != null && newSnapshot.getBoardCount() + newSnapshot.getArchivedBoardCount()
+                < previous.getBoardCount() + previous.getArchivedBoardCount())
+        {
+            // Boards have gone, so this is a different game altogether.
+            previous = null;
+            tiles.clear();
+            repaint();
+        }
+        else if (previous != null && newSnapshot.getArchivedBoardCount() != previous.getArchivedBoardCount())
+        {
+            // Boards have been archived (or brought back), so the ones that have gone need clearing off the screen.
+            for (BoardSnapshot board : boards)
             {
-                g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 0, null, 0));
-                Move move = (Move) order;
-                switch (move.getLocation()[2])
-                {
-                    case 0:
-                        offsetXLocation = side / -4.0;
-                        offsetYLocation = side * Math.sqrt(3) / 12.0;
-                        break;
-                    case 1:
-                        offsetXLocation = 0;
-                        offsetYLocation = side * Math.sqrt(3) / -6.0;
-                        break;
-                    default:
-                        offsetXLocation = side / 4.0;
-                        offsetYLocation = side * Math.sqrt(3) / 12.0;
-                }
-                switch (move.getDestination()[2])
+                if (newSnapshot.getBoard(board.getX(), board.getY()) == null)
                 {
-                    case 0:
-                        offsetXDestination = side / -4.0;
-                        offsetYDestination = side * Math.sqrt(3) / 12.0;
-                        break;
-                    case 1:
-                        offsetXDestination = 0;
-                        offsetYDestination = side * Math.sqrt(3) / -6.0;
-                        break;
-                    default:
-                        offsetXDestination = side / 4.0;
-                        offsetYDestination = side * Math.sqrt(3) / 12.0;
+                    tiles.remove(board.getKey());
+                    Rectangle bounds = getTileBounds(board);
+                    if (view.intersects(bounds))
+                    {
+                        repaint(toScreen(bounds));
+                    }
                 }
-                drawArrowLine(g2d,
-                        (int) (side + move.getLocation()[0] * side * spacing + offsetXLocation),
-                        (int) (540 - move.getLocation()[1] * side * spacing + offsetYLocation),
-                        (int) (side + move.getDestination()[0] * side * spacing + offsetXDestination),
-                        (int) (540 - move.getDestination()[1] * side * spacing + offsetYDestination),
-                        20, 10
-                );
             }
-            else if (order instanceof Support)
+        }
+
+        minBoardX = minBoardY = Integer.MAX_VALUE;
+        maxBoardX = maxBoardY = Integer.MIN_VALUE;
+        for (BoardSnapshot board : newBoards)
+        {
+            minBoardX = Math.min(minBoardX, board.getX());
+            maxBoardX = Math.max(maxBoardX, board.getX());
+            minBoardY = Math.min(minBoardY, board.getY());
+            maxBoardY = Math.max(maxBoardY, board.getY());
+            if (previous == null || previous.getBoard(board.getX(), board.getY()) != board)
             {
-                g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 0, new float[] {5}, 0));
-                Support support = (Support) order;
-                switch (support.getLocation()[2])
+                Rectangle bounds = getTileBounds(board);
+                if (view.intersects(bounds))
                 {
-                    case 0:
-                        offsetXLocation = side / -4.0;
-                        offsetYLocation = side * Math.sqrt(3) / 12.0;
-                        break;
-                    case 1:
-                        offsetXLocation = 0;
-                        offsetYLocation = side * Math.sqrt(3) / -6.0;
-                        break;
-                    default:
-                        offsetXLocation = side / 4.0;
-                        offsetYLocation = side * Math.sqrt(3) / 12.0;
+                    repaint(toScreen(bounds));
                 }
-                switch (support.getSupportDestination()[2])
+            }
+        }
+
+        // Orders only get added during a game, so only the new ones need indexing and painting, unless a retention policy
+        // has dropped the oldest.
+        boolean ordersAppended = displayedOrders.size() >= orders.size()
+                && (orders.isEmpty() || displayedOrders.get(0) == orders.get(0));
+        if (!ordersAppended)
+        {
+            ordersByBoard.clear();
+            orders = Collections.emptyList();
+            repaint();
+        }
+        for (int i = orders.size(); i < displayedOrders.size(); i++)
+        {
+            Order order = displayedOrders.get(i);
+            addToBoardIndex(order);
+            Rectangle bounds = getBounds(order);
+            if (view.intersects(bounds))
+            {
+                repaint(toScreen(bounds));
+            }
+        }
+
+        snapshot = newSnapshot;
+        boards = newBoards;
+        orders = displayedOrders;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        super.paintComponent(g);
+        if (snapshot == null)
+        {
+            return;
+        }
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.translate(offsetX, offsetY);
+        g2d.scale(scale, scale);
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null)
+        {
+            clip = toWorld(new Rectangle(0, 0, getWidth(), getHeight()));
+        }
+
+        if (scale < SUMMARY_SCALE)
+        {
+            forEachBoardIn(clip, 0, board -> drawSummary(g2d, board));
+        }
+        else
+        {
+            forEachBoardIn(clip, 0, board -> drawTile(g2d, board));
+
+            // Orders reach at most one board away from where they're drawn from, apart from the supported location of a
+            // support, which is indexed against that board as well.
+            Rectangle orderClip = clip;
+            forEachBoardIn(clip, 1, board -> {
+                ArrayList<Order> boardOrders = ordersByBoard.get(board.getKey());
+                if (boardOrders != null)
                 {
-                    case 0:
-                        offsetXDestination = side / -4.0;
-                        offsetYDestination = side * Math.sqrt(3) / 12.0;
-                        break;
-                    case 1:
-                        offsetXDestination = 0;
-                        offsetYDestination = side * Math.sqrt(3) / -6.0;
-                        break;
-                    default:
-                        offsetXDestination = side / 4.0;
-                        offsetYDestination = side * Math.sqrt(3) / 12.0;
+                    for (Order order : boardOrders)
+                    {
+                        if (orderClip.intersects(getBounds(order)))
+                        {
+                            drawOrder(g2d, order);
+                        }
+                    }
                 }
-                switch (support.getSupportLocation()[2])
+            });
+        }
+        g2d.dispose();
+    }
+
+    // Visits the boards overlapping an area of the world, plus the given number of boards around it. When the area
+    // holds more board positions than there are boards it's quicker to go through the boards themselves.
+    private void forEachBoardIn(Rectangle area, int margin, Consumer<BoardSnapshot> action)
+    {
+        int minX = Math.max(minBoardX, (int) Math.floor((area.getMinX() - SIDE - SIDE / 2.0) / BOARD_PITCH) - margin);
+        int maxX = Math.min(maxBoardX, (int) Math.ceil((area.getMaxX() - SIDE + SIDE / 2.0) / BOARD_PITCH) + margin);
+        int minY = Math.max(minBoardY, (int) Math.floor((CENTRE_Y - area.getMaxY() - SIDE) / BOARD_PITCH) - margin);
+        int maxY = Math.min(maxBoardY, (int) Math.ceil((CENTRE_Y - area.getMinY() + SIDE) / BOARD_PITCH) + margin);
+        if (minX > maxX || minY > maxY)
+        {
+            return;
+        }
+
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > boards.size())
+        {
+            for (BoardSnapshot board : boards)
+            {
+                if (board.getX() >= minX && board.getX() <= maxX && board.getY() >= minY && board.getY() <= maxY)
                 {
-                    case 0:
-                        offsetXSupport = side / -4.0;
-                        offsetYSupport = side * Math.sqrt(3) / 12.0;
-                        break;
-                    case 1:
-                        offsetXSupport = 0;
-                        offsetYSupport = side * Math.sqrt(3) / -6.0;
-                        break;
-                    default:
-                        offsetXSupport = side / 4.0;
-                        offsetYSupport = side * Math.sqrt(3) / 12.0;
+                    action.accept(board);
                 }
-                if (Arrays.equals(support.getSupportLocation(), support.getSupportDestination()))
+            }
+            return;
+        }
+
+        for (int y = minY; y <= maxY; y++)
+        {
+            for (int x = minX; x <= maxX; x++)
+            {
+                BoardSnapshot board = snapshot.getBoard(x, y);
+                if (board != null)
                 {
-                    g2d.drawLine(
-                            (int) (side + support.getLocation()[0] * side * spacing + offsetXLocation),
-                            (int) (540 - support.getLocation()[1] * side * spacing + offsetYLocation),
-                            (int) (side + support.getSupportDestination()[0] * side * spacing + offsetXDestination),
-                            (int) (540 - support.getSupportDestination()[1] * side * spacing + offsetYDestination)
-                    );
-                    g2d.drawOval(
-                            (int) (side + support.getSupportDestination()[0] * side * spacing + offsetXDestination - armyScaling / 2.0 - 3),
-                            (int) (540 - support.getSupportDestination()[1] * side * spacing + offsetYDestination - armyScaling / 2.0 - 3),
-                            armyScaling + 6, armyScaling + 6
-                    );
+                    action.accept(board);
                 }
-                else
+            }
+        }
+    }
+
+    private void drawTile(Graphics2D g2d, BoardSnapshot board)
+    {
+        Tile tile = tiles.get(board.getKey());
+        if (tile == null || tile.board != board)
+        {
+            tile = new Tile(board);
+            tile.image = renderTile(tile);
+            tiles.put(board.getKey(), tile);
+        }
+        g2d.drawImage(tile.image, tile.bounds.x, tile.bounds.y, null);
+    }
+
+    // A single block of colour for the player with more armies on the board, faded out if the board is inactive.
+    private static void drawSummary(Graphics2D g2d, BoardSnapshot board)
+    {
+        int balance = 0;
+        for (Army army : board.getArmies())
+        {
+            balance += army.getOwner() == Player.BLUE ? 1 : army.getOwner() == Player.ORANGE ? -1 : 0;
+        }
+        if (balance > 0)
+        {
+            g2d.setColor(board.isActive() ? ACTIVE_BLUE_PROVINCE : INACTIVE_BLUE_PROVINCE);
+        }
+        else if (balance < 0)
+        {
+            g2d.setColor(board.isActive() ? ACTIVE_ORANGE_PROVINCE : INACTIVE_ORANGE_PROVINCE);
+        }
+        else
+        {
+            g2d.setColor(board.isActive() ? ACTIVE_NEUTRAL_SUMMARY : INACTIVE_NEUTRAL_SUMMARY);
+        }
+        Rectangle bounds = getTileBounds(board);
+        g2d.fillRect(bounds.x + TILE_MARGIN, bounds.y + TILE_MARGIN, SIDE, TILE_HEIGHT - 2 * TILE_MARGIN);
+    }
+
+    private void addToBoardIndex(Order order)
+    {
+        long boardKey = Coordinates.boardOf(order.getLocationKey());
+        ordersByBoard.computeIfAbsent(boardKey, key -> new ArrayList<>()).add(order);
+        if (order instanceof Support)
+        {
+            Support support = (Support) order;
+            if (Math.abs(support.getSupportLocationX() - support.getLocationX()) > 1
+                    || Math.abs(support.getSupportLocationY() - support.getLocationY()) > 1)
+            {
+                ordersByBoard.computeIfAbsent(Coordinates.boardOf(support.getSupportLocationKey()), key -> new ArrayList<>())
+                        .add(order);
+            }
+        }
+    }
+
+    private Rectangle toScreen(Rectangle world)
+    {
+        int x = (int) Math.floor(world.x * scale + offsetX);
+        int y = (int) Math.floor(world.y * scale + offsetY);
+        return new Rectangle(x, y, (int) Math.ceil(world.width * scale) + 2, (int) Math.ceil(world.height * scale) + 2);
+    }
+
+    private Rectangle toWorld(Rectangle screen)
+    {
+        int x = (int) Math.floor((screen.x - offsetX) / scale);
+        int y = (int) Math.floor((screen.y - offsetY) / scale);
+        return new Rectangle(x, y, (int) Math.ceil(screen.width / scale) + 2, (int) Math.ceil(screen.height / scale) + 2);
+    }
+
+    private static Rectangle getTileBounds(BoardSnapshot board)
+    {
+        return new Rectangle((int) Math.floor(centreX(board.getX())) + TILE_LEFT,
+                (int) Math.floor(centreY(board.getY())) + TILE_TOP, TILE_WIDTH, TILE_HEIGHT);
+    }
+
+    // Armies are shrunk to fit between the provinces of a crowded map.
+    private void setMap(MapTopology newMap)
+    {
+        map = newMap;
+        armySize = ARMY_SIZE;
+        for (int from = 0; from < map.getProvinceCount(); from++)
+        {
+            for (int to = from + 1; to < map.getProvinceCount(); to++)
+            {
+                double distance = SIDE * Math.hypot(map.getX(to) - map.getX(from), map.getY(to) - map.getY(from));
+                armySize = Math.min(armySize, distance * 0.8);
+            }
+        }
+    }
+
+    private BufferedImage renderTile(Tile tile)
+    {
+        BoardSnapshot board = tile.board;
+        BufferedImage image = new BufferedImage(TILE_WIDTH, TILE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.translate(centreX(board.getX()) - tile.bounds.x, centreY(board.getY()) - tile.bounds.y);
+
+        if (map.equals(MapTopology.DEFAULT))
+        {
+            g2d.setColor(board.isActive() ? ACTIVE_BLUE_PROVINCE : INACTIVE_BLUE_PROVINCE);
+            g2d.fill(BLUE_PROVINCE);
+            g2d.setColor(board.isActive() ? ACTIVE_ORANGE_PROVINCE : INACTIVE_ORANGE_PROVINCE);
+            g2d.fill(ORANGE_PROVINCE);
+
+            g2d.setPaint(board.isActive() ? Color.BLACK : INACTIVE_OUTLINE);
+            g2d.setStroke(LINE);
+            for (Shape line : BOARD_LINES)
+            {
+                g2d.draw(line);
+            }
+        }
+        else
+        {
+            drawMap(g2d, board.isActive());
+        }
+
+        for (Army army : board.getArmies())
+        {
+            g2d.setColor(getColour(army.getOwner()));
+            int z = provinceIndex(army.getZ());
+            g2d.fill(new Ellipse2D.Double(SIDE * map.getX(z) - armySize / 2.0,
+                    SIDE * map.getY(z) - armySize / 2.0, armySize, armySize));
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    // Each border as a line between the provinces' centres, and each province as a small dot.
+    private void drawMap(Graphics2D g2d, boolean active)
+    {
+        g2d.setPaint(active ? Color.BLACK : INACTIVE_OUTLINE);
+        g2d.setStroke(new BasicStroke(1));
+        for (int from = 0; from < map.getProvinceCount(); from++)
+        {
+            for (int i = map.getAdjacencyStart(from); i < map.getAdjacencyStart(from + 1); i++)
+            {
+                int to = map.getAdjacent(i);
+                if (from < to)
                 {
-                    QuadCurve2D curve = new QuadCurve2D.Float();
-                    curve.setCurve(
-                            (int) (side + support.getLocation()[0] * side * spacing + offsetXLocation),
-                            (int) (540 - support.getLocation()[1] * side * spacing + offsetYLocation),
-                            (int) (side + support.getSupportLocation()[0] * side * spacing + offsetXSupport),
-                            (int) (540 - support.getSupportLocation()[1] * side * spacing + offsetYSupport),
-                            (int) (side + support.getSupportDestination()[0] * side * spacing + offsetXDestination),
-                            (int) (540 - support.getSupportDestination()[1] * side * spacing + offsetYDestination)
-                    );
-                    g2d.draw(curve);
+                    g2d.draw(new Line2D.Double(SIDE * map.getX(from), SIDE * map.getY(from),
+                            SIDE * map.getX(to), SIDE * map.getY(to)));
                 }
             }
         }
+        double dotSize = armySize / 3;
+        for (int z = 0; z < map.getProvinceCount(); z++)
+        {
+            g2d.fill(new Ellipse2D.Double(SIDE * map.getX(z) - dotSize / 2, SIDE * map.getY(z) - dotSize / 2,
+                    dotSize, dotSize));
+        }
+    }
+
+    private void drawOrder(Graphics2D g2d, Order order)
+    {
+        g2d.setColor(order.getPlayer() == Player.BLUE ? BLUE : ORANGE);
+        if (order instanceof Move)
+        {
+            Move move = (Move) order;
+            g2d.setStroke(LINE);
+            drawArrowLine(g2d,
+                    (int) locationX(move.getLocationX(), move.getLocationZ()),
+                    (int) locationY(move.getLocationY(), move.getLocationZ()),
+                    (int) locationX(move.getDestinationX(), move.getDestinationZ()),
+                    (int) locationY(move.getDestinationY(), move.getDestinationZ()),
+                    20, 10
+            );
+        }
+        else if (order instanceof Support)
+        {
+            Support support = (Support) order;
+            g2d.setStroke(DASHED_LINE);
+            int fromX = (int) locationX(support.getLocationX(), support.getLocationZ());
+            int fromY = (int) locationY(support.getLocationY(), support.getLocationZ());
+            int toX = (int) locationX(support.getSupportDestinationX(), support.getSupportDestinationZ());
+            int toY = (int) locationY(support.getSupportDestinationY(), support.getSupportDestinationZ());
+            if (support.getSupportLocationKey() == support.getSupportDestinationKey())
+            {
+                g2d.drawLine(fromX, fromY, toX, toY);
+                g2d.draw(new Ellipse2D.Double(toX - armySize / 2 - 3, toY - armySize / 2 - 3, armySize + 6, armySize + 6));
+            }
+            else
+            {
+                QuadCurve2D curve = new QuadCurve2D.Float();
+                curve.setCurve(fromX, fromY,
+                        (int) locationX(support.getSupportLocationX(), support.getSupportLocationZ()),
+                        (int) locationY(support.getSupportLocationY(), support.getSupportLocationZ()),
+                        toX, toY);
+                g2d.draw(curve);
+            }
+        }
+    }
+
+    // Covers every point an order is drawn through, plus enough for arrowheads and hold circles.
+    private Rectangle getBounds(Order order)
+    {
+        Rectangle bounds = new Rectangle((int) locationX(order.getLocationX(), order.getLocationZ()),
+                (int) locationY(order.getLocationY(), order.getLocationZ()), 0, 0);
+        if (order instanceof Move)
+        {
+            Move move = (Move) order;
+            bounds.add(locationX(move.getDestinationX(), move.getDestinationZ()),
+                    locationY(move.getDestinationY(), move.getDestinationZ()));
+        }
+        else if (order instanceof Support)
+        {
+            Support support = (Support) order;
+            bounds.add(locationX(support.getSupportLocationX(), support.getSupportLocationZ()),
+                    locationY(support.getSupportLocationY(), support.getSupportLocationZ()));
+            bounds.add(locationX(support.getSupportDestinationX(), support.getSupportDestinationZ()),
+                    locationY(support.getSupportDestinationY(), support.getSupportDestinationZ()));
+        }
+        bounds.grow(ARMY_SIZE, ARMY_SIZE);
+        return bounds;
+    }
+
+    private static double centreX(int x)
+    {
+        return SIDE + x * SIDE * SPACING;
+    }
+
+    private static double centreY(int y)
+    {
+        return CENTRE_Y - y * SIDE * SPACING;
+    }
+
+    private double locationX(int x, int z)
+    {
+        return centreX(x) + SIDE * map.getX(provinceIndex(z));
+    }
+
+    private double locationY(int y, int z)
+    {
+        return centreY(y) + SIDE * map.getY(provinceIndex(z));
+    }
+
+    // Anything outside the map is drawn in its last province.
+    private int provinceIndex(int z)
+    {
+        return map.isProvince(z) ? z : map.getProvinceCount() - 1;
+    }
+
+    private static Color getColour(Player player)
+    {
+        switch (player)
+        {
+            case BLUE:
+                return BLUE;
+            case ORANGE:
+                return ORANGE;
+            default:
+                return Color.GRAY;
+        }
     }
 
     // Shamelessly copied straight from: https://stackoverflow.com/questions/2027613/how-to-draw-a-directed-arrow-line-in-java
@@ -291,4 +610,4 @@ class Province extends Path2D.Double {
         lineTo(points[3].getX(), points[3].getY());
         closePath();
     }
-}
\ No newline at end of file
+}
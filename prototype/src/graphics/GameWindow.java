@@ -0,0 +1,33 @@
+package graphics;
+
+import processing.Game;
+import processing.GameSnapshot;
+import processing.Order;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GameWindow {
+    private final JFrame frame;
+    private final GameDisplay display;
+
+    public GameWindow()
+    {
+        frame = new JFrame();
+        frame.setSize(1920, 1080);
+        frame.setTitle("5D Diplomacy With Multiverse Time Travel");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        display = new GameDisplay();
+        frame.add(display);
+        frame.setVisible(true);
+    }
+
+    // The snapshot is immutable and the orders are copied, so the game can carry on while the display catches up.
+    public void display(Game game)
+    {
+        GameSnapshot snapshot = game.getSnapshot();
+        List<Order> orders = new ArrayList<>(game.getDisplayedOrders());
+        SwingUtilities.invokeLater(() -> display.update(snapshot, orders));
+    }
+}
@@ -0,0 +1,27 @@
+package processing;
+
+import java.util.List;
+
+public class AdjudicationResult {
+    private final Game game;
+
+    AdjudicationResult(Game resolvedGame)
+    {
+        game = resolvedGame;
+    }
+
+    public Game getGame()
+    {
+        return game;
+    }
+
+    public List<Army> getRetreatingArmies()
+    {
+        return game.getRetreatingArmies();
+    }
+
+    public boolean isRetreatNeeded()
+    {
+        return game.isRetreatNeeded();
+    }
+}
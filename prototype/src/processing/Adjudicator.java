@@ -0,0 +1,26 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Headless entry point to the rules. The given game is left untouched and a resolved copy is returned, while the orders
+// are annotated with their strengths and outcomes as usual.
+public final class Adjudicator {
+    private Adjudicator()
+    {
+    }
+
+    public static AdjudicationResult adjudicate(Game state, List<Order> orders)
+    {
+        Game game = new Game(state);
+        game.resolveOrders(new ArrayList<>(orders), false);
+        return new AdjudicationResult(game);
+    }
+
+    public static AdjudicationResult adjudicateRetreats(Game state, List<Retreat> retreats)
+    {
+        Game game = new Game(state);
+        game.resolveRetreats(new ArrayList<>(retreats));
+        return new AdjudicationResult(game);
+    }
+}
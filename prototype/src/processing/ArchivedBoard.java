@@ -0,0 +1,83 @@
+package processing;
+
+import java.util.ArrayList;
+
+// An inactive board moved out of the game's working set, kept as just its creation index, hash and its armies' heights
+// and owners. That's enough to bring it back exactly as it was, with the same snapshot hash, if an order reaches it again.
+final class ArchivedBoard {
+    private static final Player[] PLAYERS = Player.values();
+
+    private final long key;
+    private final int creationIndex;
+    private final long hash;
+    private final int[] armyZs;
+    private final byte[] armyOwners;
+
+    ArchivedBoard(BoardSnapshot board)
+    {
+        key = board.getKey();
+        creationIndex = board.getCreationIndex();
+        hash = board.getHash();
+        armyZs = new int[board.getArmies().size()];
+        armyOwners = new byte[armyZs.length];
+        for (int i = 0; i < armyZs.length; i++)
+        {
+            Army army = board.getArmies().get(i);
+            armyZs[i] = army.getZ();
+            armyOwners[i] = (byte) army.getOwner().ordinal();
+        }
+    }
+
+    long getKey()
+    {
+        return key;
+    }
+
+    int getX()
+    {
+        return Coordinates.x(key);
+    }
+
+    int getY()
+    {
+        return Coordinates.y(key);
+    }
+
+    int getCreationIndex()
+    {
+        return creationIndex;
+    }
+
+    long getHash()
+    {
+        return hash;
+    }
+
+    int getArmyCount()
+    {
+        return armyZs.length;
+    }
+
+    int getArmyZ(int army)
+    {
+        return armyZs[army];
+    }
+
+    Player getArmyOwner(int army)
+    {
+        return PLAYERS[armyOwners[army]];
+    }
+
+    // The board as it was when it was archived.
+    BoardSnapshot toSnapshot()
+    {
+        Board board = new Board(getX(), getY());
+        board.setActive(false);
+        ArrayList<Army> armies = new ArrayList<>(armyZs.length);
+        for (int i = 0; i < armyZs.length; i++)
+        {
+            armies.add(new Army(getX(), getY(), armyZs[i], getArmyOwner(i)));
+        }
+        return new BoardSnapshot(board, armies, creationIndex);
+    }
+}
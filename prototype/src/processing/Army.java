@@ -8,23 +8,31 @@ public class Army {
 
     public Army(int x, int y, int z, Player player)
     {
+        Coordinates.checkRange(x, y, z);
         xPos = x;
         yPos = y;
         zPos = z;
         owner = player;
     }
 
-    public Army(int[] location, Player player)
+    public int getX()
     {
-        xPos = location[0];
-        yPos = location[1];
-        zPos = location[2];
-        owner = player;
+        return xPos;
+    }
+
+    public int getY()
+    {
+        return yPos;
+    }
+
+    public int getZ()
+    {
+        return zPos;
     }
 
-    public int[] getLocation()
+    public long getLocationKey()
     {
-        return new int[] {xPos, yPos, zPos};
+        return Coordinates.pack(xPos, yPos, zPos);
     }
 
     public Player getOwner()
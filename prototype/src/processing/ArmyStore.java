@@ -0,0 +1,326 @@
+package processing;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+// Every army in a game, stored column by column rather than as one object each. An army is just its index into the
+// columns, and armies are only ever appended. The armies on each board are chained together through nextOnBoard in the
+// order they were added, and each board's first and last army are kept in an open-addressed table keyed by the packed
+// board position, so nothing is boxed and nothing is allocated per army or per board. Boards only hold a few armies,
+// so looking for the armies at one location just walks its board's chain.
+public class ArmyStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int EMPTY = -1;
+    private static final Player[] PLAYERS = Player.values();
+
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private byte[] owners;
+    private int[] nextOnBoard;
+    private int size;
+
+    // The first and last army on each board, by slot. Empty slots have no first army. The table is kept at most half full.
+    private long[] boardKeys;
+    private int[] firstOnBoard;
+    private int[] lastOnBoard;
+    private int boardCount;
+    private int minY = 0;
+    private int maxY = 0;
+
+    public ArmyStore()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ArmyStore(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        xs = new int[capacity];
+        ys = new int[capacity];
+        zs = new int[capacity];
+        owners = new byte[capacity];
+        nextOnBoard = new int[capacity];
+        // Boards usually hold a few armies each, so this is enough for the expected boards without growing.
+        allocateBoards(Integer.highestOneBit(Math.max(capacity, 16)));
+    }
+
+    public ArmyStore(ArmyStore other)
+    {
+        xs = Arrays.copyOf(other.xs, other.xs.length);
+        ys = Arrays.copyOf(other.ys, other.ys.length);
+        zs = Arrays.copyOf(other.zs, other.zs.length);
+        owners = Arrays.copyOf(other.owners, other.owners.length);
+        nextOnBoard = Arrays.copyOf(other.nextOnBoard, other.nextOnBoard.length);
+        size = other.size;
+        boardKeys = Arrays.copyOf(other.boardKeys, other.boardKeys.length);
+        firstOnBoard = Arrays.copyOf(other.firstOnBoard, other.firstOnBoard.length);
+        lastOnBoard = Arrays.copyOf(other.lastOnBoard, other.lastOnBoard.length);
+        boardCount = other.boardCount;
+        minY = other.minY;
+        maxY = other.maxY;
+    }
+
+    // Adds an army and returns its index.
+    public int add(int x, int y, int z, Player owner)
+    {
+        if (size == xs.length)
+        {
+            int capacity = size * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            nextOnBoard = Arrays.copyOf(nextOnBoard, capacity);
+        }
+        int army = size++;
+        xs[army] = x;
+        ys[army] = y;
+        zs[army] = z;
+        owners[army] = (byte) owner.ordinal();
+        nextOnBoard[army] = EMPTY;
+
+        long board = Coordinates.packBoard(x, y);
+        int slot = findSlot(board);
+        if (firstOnBoard[slot] == EMPTY)
+        {
+            boardKeys[slot] = board;
+            firstOnBoard[slot] = army;
+            lastOnBoard[slot] = army;
+            if (++boardCount * 2 > boardKeys.length)
+            {
+                growBoards();
+            }
+        }
+        else
+        {
+            nextOnBoard[lastOnBoard[slot]] = army;
+            lastOnBoard[slot] = army;
+        }
+        minY = Integer.min(minY, y);
+        maxY = Integer.max(maxY, y);
+        return army;
+    }
+
+    public int add(Army army)
+    {
+        return add(army.getX(), army.getY(), army.getZ(), army.getOwner());
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getX(int army)
+    {
+        return xs[army];
+    }
+
+    public int getY(int army)
+    {
+        return ys[army];
+    }
+
+    public int getZ(int army)
+    {
+        return zs[army];
+    }
+
+    public Player getOwner(int army)
+    {
+        return PLAYERS[owners[army]];
+    }
+
+    public long getLocationKey(int army)
+    {
+        return Coordinates.pack(xs[army], ys[army], zs[army]);
+    }
+
+    public Army getArmy(int army)
+    {
+        return new Army(xs[army], ys[army], zs[army], getOwner(army));
+    }
+
+    // The first army on the given board, or -1 if there are none. The rest follow through nextArmyOnBoard.
+    public int firstArmyOnBoard(int x, int y)
+    {
+        return firstOnBoard[findSlot(Coordinates.packBoard(x, y))];
+    }
+
+    public int nextArmyOnBoard(int army)
+    {
+        return nextOnBoard[army];
+    }
+
+    public boolean hasBoard(int x, int y)
+    {
+        return firstArmyOnBoard(x, y) != EMPTY;
+    }
+
+    public int countArmiesAt(long location)
+    {
+        return countArmiesUpTo(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location), size - 1);
+    }
+
+    // The owner of the first army at the location, or null if it's empty.
+    public Player getOwnerAt(long location)
+    {
+        int z = Coordinates.z(location);
+        for (int army = firstArmyOnBoard(Coordinates.x(location), Coordinates.y(location)); army != EMPTY; army = nextOnBoard[army])
+        {
+            if (zs[army] == z)
+            {
+                return getOwner(army);
+            }
+        }
+        return null;
+    }
+
+    public ArrayList<Army> getArmiesOnBoard(int x, int y)
+    {
+        ArrayList<Army> armies = new ArrayList<>(3);
+        for (int army = firstArmyOnBoard(x, y); army != EMPTY; army = nextOnBoard[army])
+        {
+            armies.add(getArmy(army));
+        }
+        return armies;
+    }
+
+    // Copies every army on one board to the same place on another in one pass over the board's chain. Copies that would
+    // land where there's already an army (before any copying started) aren't added, but go to collisions instead.
+    public void duplicateBoard(int fromX, int fromY, int toX, int toY, List<Army> collisions)
+    {
+        int last = size - 1;
+        for (int army = firstArmyOnBoard(fromX, fromY); army != EMPTY && army <= last; army = nextOnBoard[army])
+        {
+            if (countArmiesUpTo(toX, toY, zs[army], last) > 0)
+            {
+                collisions.add(new Army(toX, toY, zs[army], getOwner(army)));
+            }
+            else
+            {
+                add(toX, toY, zs[army], getOwner(army));
+            }
+        }
+    }
+
+    // Copies the armies on one board that were added before end to the same place on another, whether or not anything's
+    // already there, except for skippedOwner's armies at skippedZ. Returns how many were copied.
+    public int copyBoard(int fromX, int fromY, int toX, int toY, int end, Player skippedOwner, int skippedZ)
+    {
+        int copied = 0;
+        for (int army = firstArmyOnBoard(fromX, fromY); army != EMPTY && army < end; army = nextOnBoard[army])
+        {
+            if (skippedOwner == null || zs[army] != skippedZ || getOwner(army) != skippedOwner)
+            {
+                add(toX, toY, zs[army], getOwner(army));
+                copied++;
+            }
+        }
+        return copied;
+    }
+
+    // A new store without the armies on the given boards, keeping the rest in the same order. The y range stays as it was,
+    // as timelines don't go away just because some of their boards have.
+    public ArmyStore withoutBoards(Set<Long> removedBoards)
+    {
+        ArmyStore kept = new ArmyStore(size);
+        for (int army = 0; army < size; army++)
+        {
+            if (!removedBoards.contains(Coordinates.packBoard(xs[army], ys[army])))
+            {
+                kept.add(xs[army], ys[army], zs[army], getOwner(army));
+            }
+        }
+        kept.minY = Integer.min(kept.minY, minY);
+        kept.maxY = Integer.max(kept.maxY, maxY);
+        return kept;
+    }
+
+    private int countArmiesUpTo(int x, int y, int z, int last)
+    {
+        int count = 0;
+        for (int army = firstArmyOnBoard(x, y); army != EMPTY && army <= last; army = nextOnBoard[army])
+        {
+            if (zs[army] == z)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int findSlot(long board)
+    {
+        int mask = boardKeys.length - 1;
+        int slot = (int) Hashing.mix(board) & mask;
+        while (firstOnBoard[slot] != EMPTY && boardKeys[slot] != board)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocateBoards(int slots)
+    {
+        boardKeys = new long[slots];
+        firstOnBoard = new int[slots];
+        lastOnBoard = new int[slots];
+        Arrays.fill(firstOnBoard, EMPTY);
+    }
+
+    private void growBoards()
+    {
+        long[] oldKeys = boardKeys;
+        int[] oldFirst = firstOnBoard;
+        int[] oldLast = lastOnBoard;
+        allocateBoards(oldKeys.length * 2);
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++)
+        {
+            if (oldFirst[oldSlot] != EMPTY)
+            {
+                int slot = findSlot(oldKeys[oldSlot]);
+                boardKeys[slot] = oldKeys[oldSlot];
+                firstOnBoard[slot] = oldFirst[oldSlot];
+                lastOnBoard[slot] = oldLast[oldSlot];
+            }
+        }
+    }
+
+    // Matches the old stream reduction, which started from 0 rather than from the first army.
+    public int getMinY()
+    {
+        return minY;
+    }
+
+    public int getMaxY()
+    {
+        return maxY;
+    }
+
+    // A read-only view of the armies as objects, made as they're read.
+    public List<Army> asList()
+    {
+        return new AbstractList<>() {
+            @Override
+            public Army get(int index)
+            {
+                if (index < 0 || index >= size)
+                {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return getArmy(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package processing;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BatchRunner {
+    private static final int METRICS_SAMPLE_INTERVAL = 10;
+
+    // Each order file is a separate game in the same format as the interactive runner reads: orders on separate lines
+    // and `r` to resolve them, followed by a block of retreats (also ended by `r`) whenever a turn needs retreats.
+    // Results go to standard output, or to <file name>.result in the output directory when -o is given. With --metrics,
+    // the time, counts and sampled allocation of every resolution are totalled and printed to standard error at the end.
+    public static void main(String[] args) throws IOException
+    {
+        Path outputDirectory = null;
+        ResolutionStats stats = null;
+        ArrayList<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-o") && i + 1 < args.length)
+            {
+                outputDirectory = Path.of(args[++i]);
+            }
+            else if (args[i].equals("--metrics"))
+            {
+                stats = new ResolutionStats();
+                Instrumentation.install(stats, METRICS_SAMPLE_INTERVAL);
+            }
+            else
+            {
+                inputs.add(Path.of(args[i]));
+            }
+        }
+
+        if (inputs.isEmpty())
+        {
+            System.err.println("Usage: BatchRunner [-o output-directory] [--metrics] order-file...");
+            System.exit(1);
+        }
+
+        // Games are independent, so play them all at once and only write the results out in order at the end.
+        List<String> results = inputs.parallelStream().map(BatchRunner::playToText).collect(Collectors.toList());
+
+        if (outputDirectory != null)
+        {
+            Files.createDirectories(outputDirectory);
+        }
+        for (int i = 0; i < inputs.size(); i++)
+        {
+            if (outputDirectory == null)
+            {
+                System.out.println("==> " + inputs.get(i) + " <==");
+                System.out.print(results.get(i));
+            }
+            else
+            {
+                Path output = outputDirectory.resolve(inputs.get(i).getFileName() + ".result");
+                Files.writeString(output, results.get(i), StandardCharsets.UTF_8);
+            }
+        }
+        if (stats != null)
+        {
+            System.err.println(stats);
+        }
+    }
+
+    private static String playToText(Path input)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, false, StandardCharsets.UTF_8);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8))
+        {
+            play(reader, out);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            out.println("\nFailed: " + e);
+        }
+        out.flush();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    public static Game play(Reader reader, PrintStream out) throws IOException
+    {
+        Game game = new Game();
+        int turn = 0;
+        OrderParser parser = new OrderParser(reader);
+        try
+        {
+            while (true)
+            {
+                if (game.isRetreatNeeded())
+                {
+                    ArrayList<Retreat> retreats = parser.readRetreats();
+                    if (retreats == null)
+                    {
+                        break;
+                    }
+                    out.println("\nTurn " + turn + " retreats:");
+                    game.resolveRetreats(retreats);
+                }
+                else
+                {
+                    ArrayList<Order> orders = parser.readOrders();
+                    if (orders == null)
+                    {
+                        break;
+                    }
+                    out.println("\nTurn " + ++turn + ":");
+                    game.resolveOrders(orders, false);
+                }
+                game.displayText(out);
+            }
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        return game;
+    }
+}
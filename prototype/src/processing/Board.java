@@ -17,9 +17,19 @@ public class Board {
         active = isActive;
     }
 
-    public int[] getPosition()
+    public int getX()
     {
-        return new int[] {xPos, yPos};
+        return xPos;
+    }
+
+    public int getY()
+    {
+        return yPos;
+    }
+
+    public long getKey()
+    {
+        return Coordinates.packBoard(xPos, yPos);
     }
 
     public String toString()
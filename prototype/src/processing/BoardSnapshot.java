@@ -0,0 +1,73 @@
+package processing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// A frozen copy of one board and the armies on it. Boards that don't change between turns keep the same snapshot.
+public final class BoardSnapshot {
+    private final int xPos;
+    private final int yPos;
+    private final boolean active;
+    private final int creationIndex;
+    private final List<Army> armies;
+    private final long hash;
+
+    BoardSnapshot(Board board, List<Army> boardArmies, int index)
+    {
+        xPos = board.getX();
+        yPos = board.getY();
+        active = board.isActive();
+        creationIndex = index;
+        armies = Collections.unmodifiableList(Arrays.asList(boardArmies.toArray(new Army[0])));
+
+        long boardHash = Hashing.combine(Hashing.mix(getKey()), creationIndex * 2L + (active ? 1 : 0));
+        for (Army army : armies)
+        {
+            boardHash = Hashing.combine(boardHash, army.getLocationKey() * Player.values().length + army.getOwner().ordinal());
+        }
+        hash = boardHash;
+    }
+
+    public int getX()
+    {
+        return xPos;
+    }
+
+    public int getY()
+    {
+        return yPos;
+    }
+
+    public long getKey()
+    {
+        return Coordinates.packBoard(xPos, yPos);
+    }
+
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    // Position of the board in the order boards were created, which is also the order they're displayed in.
+    public int getCreationIndex()
+    {
+        return creationIndex;
+    }
+
+    public List<Army> getArmies()
+    {
+        return armies;
+    }
+
+    // Covers everything about the board, including the order of its armies.
+    long getHash()
+    {
+        return hash;
+    }
+
+    public String toString()
+    {
+        return (active ? "ACTIVE" : "INACTIVE" ) + " board at (" + xPos + "," + yPos + ")";
+    }
+}
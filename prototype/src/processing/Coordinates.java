@@ -0,0 +1,58 @@
+package processing;
+
+public final class Coordinates {
+    // Each coordinate is stored as a signed 21-bit field, so a full (x, y, z) location fits in one long.
+    private static final int BITS = 21;
+    private static final long MASK = (1L << BITS) - 1;
+    // The range each coordinate has to fall in, so no two locations pack to the same key.
+    public static final int MIN = -(1 << (BITS - 1));
+    public static final int MAX = (1 << (BITS - 1)) - 1;
+
+    private Coordinates()
+    {
+    }
+
+    public static boolean isInRange(int coordinate)
+    {
+        return coordinate >= MIN && coordinate <= MAX;
+    }
+
+    // Orders and armies are checked when they're built, so packing them never has to.
+    public static void checkRange(int x, int y, int z)
+    {
+        if (!isInRange(x) || !isInRange(y) || !isInRange(z))
+        {
+            throw new IllegalArgumentException("Location " + x + "," + y + "," + z + " is outside the board space");
+        }
+    }
+
+    public static long pack(int x, int y, int z)
+    {
+        return ((x & MASK) << (2 * BITS)) | ((y & MASK) << BITS) | (z & MASK);
+    }
+
+    public static long packBoard(int x, int y)
+    {
+        return pack(x, y, 0);
+    }
+
+    public static long boardOf(long location)
+    {
+        return location & ~MASK;
+    }
+
+    public static int x(long location)
+    {
+        return (int) (location << (64 - 3 * BITS) >> (64 - BITS));
+    }
+
+    public static int y(long location)
+    {
+        return (int) (location << (64 - 2 * BITS) >> (64 - BITS));
+    }
+
+    public static int z(long location)
+    {
+        return (int) (location << (64 - BITS) >> (64 - BITS));
+    }
+}
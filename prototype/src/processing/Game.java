@@ -1,73 +1,305 @@
 package processing;
 
-import graphics.GameDisplay;
-
-import javax.swing.*;
+import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class Game {
-    private ArrayList<Army> armies = new ArrayList<>();
+    private MapTopology map = MapTopology.DEFAULT;
+    private ArmyStore armies = new ArmyStore();
     private ArrayList<Board> boards = new ArrayList<>();
+    private LongHashMap<Board> boardIndex = new LongHashMap<>();
+    private HashMap<Integer, Integer> rowEnds = new HashMap<>();
+    // Only the board at the end of a row is ever active, so the active boards are found from the row ends, and only
+    // worked out again after boards have been added or deactivated.
+    private ArrayList<Board> activeBoards = new ArrayList<>();
+    private boolean activeBoardsChanged = true;
+
+    // Armies are only ever appended, so boards only need checking for those added since the last update. Likewise the
+    // only boards that can have ended up behind the end of their row are ones added since the last pass and the ends
+    // they took over from.
+    private int armiesOnBoards;
+    private ArrayList<Long> boardsToDeactivate = new ArrayList<>();
     private ArrayList<Army> retreatingArmies = new ArrayList<>();
+    // The sum of the Zobrist keys of every army, board and active board in the game, archived or not, kept up to date as
+    // they're added and boards are deactivated.
+    private long positionHash;
     private ArrayList<Order> displayedOrders = new ArrayList<>();
+    private ResolutionMetrics lastMetrics = new ResolutionMetrics();
+
+    // Every turn's snapshot, and the boards that have changed since the latest one. The first boardsInSnapshot boards are
+    // in the latest snapshot; any after them have been created or brought back from the archive since.
+    private ArrayList<GameSnapshot> history = new ArrayList<>();
+    private HashSet<Long> changedBoards = new HashSet<>();
+    private int boardsInSnapshot;
+    private int boardsCreated;
+    private TurnLog turnLog = new TurnLog();
+
+    // What the retention policy has moved out of the working set: orders per resolution, oldest first, so the oldest can
+    // be dropped from displayedOrders, and inactive boards far enough behind their row's end. Boards archived or brought
+    // back since the latest snapshot are kept to hand until the next one.
+    private RetentionPolicy retentionPolicy = RetentionPolicy.KEEP_EVERYTHING;
+    private ArrayDeque<Integer> ordersPerResolution = new ArrayDeque<>();
+    private PersistentLongMap<ArchivedBoard> archive = PersistentLongMap.empty();
+    private HashSet<Long> archivedBoards = new HashSet<>();
+    private HashMap<Long, ArchivedBoard> restoredBoards = new HashMap<>();
+    private int resolutionsSinceArchive;
 
     public Game()
     {
-        // 0 = Blue province
-        // 1 = Neutral province
-        // 2 = Orange province
-        armies.add(new Army(0,0,0, Player.BLUE));
-        armies.add(new Army(0,0,2, Player.ORANGE));
+        this(MapTopology.DEFAULT);
+    }
+
+    // A new game on the given map, with its starting armies on the first board.
+    public Game(MapTopology gameMap)
+    {
+        map = gameMap;
+        map.getStartingArmies().forEach(this::addArmy);
+        updateBoards();
+        takeSnapshot();
+        turnLog.recordStart(getSnapshot());
+    }
+
+    // Copies another game's state. Armies are immutable so are shared, but boards are copied as they can be deactivated.
+    public Game(Game other)
+    {
+        this(other, false);
+    }
+
+    // A copy for looking ahead keeps only the latest snapshot and no orders, and logs nothing, since nothing ever goes
+    // back over its turns.
+    private Game(Game other, boolean lookahead)
+    {
+        map = other.map;
+        armies = new ArmyStore(other.armies);
+        for (Board board : other.boards)
+        {
+            Board boardCopy = new Board(board.getX(), board.getY());
+            boardCopy.setActive(board.isActive());
+            addBoard(boardCopy);
+        }
+        retreatingArmies.addAll(other.retreatingArmies);
+        positionHash = other.positionHash;
+        changedBoards.clear();
+        changedBoards.addAll(other.changedBoards);
+        armiesOnBoards = other.armiesOnBoards;
+        boardsToDeactivate.clear();
+        boardsToDeactivate.addAll(other.boardsToDeactivate);
+        boardsInSnapshot = other.boardsInSnapshot;
+        boardsCreated = other.boardsCreated;
+        if (lookahead)
+        {
+            history.add(other.getSnapshot());
+            turnLog = null;
+            retentionPolicy = new RetentionPolicy(0, 1, other.retentionPolicy.getArchiveHorizon());
+        }
+        else
+        {
+            displayedOrders.addAll(other.displayedOrders);
+            history.addAll(other.history);
+            turnLog = new TurnLog(other.turnLog);
+            retentionPolicy = other.retentionPolicy;
+            ordersPerResolution.addAll(other.ordersPerResolution);
+        }
+        archive = other.archive;
+        archivedBoards.addAll(other.archivedBoards);
+        restoredBoards.putAll(other.restoredBoards);
+        resolutionsSinceArchive = other.resolutionsSinceArchive;
+    }
+
+    // Starts from an arbitrary set of armies, e.g. a synthetic multiverse for benchmarking.
+    public Game(Collection<Army> startingArmies)
+    {
+        this(startingArmies, MapTopology.DEFAULT);
+    }
+
+    public Game(Collection<Army> startingArmies, MapTopology gameMap)
+    {
+        map = gameMap;
+        startingArmies.forEach(this::addArmy);
         updateBoards();
+        deactivateBoardsBehindRowEnds();
+        takeSnapshot();
+        turnLog.recordStart(getSnapshot());
     }
 
+    // Used when loading a saved game. Boards and armies come back in their original order so play carries on identically.
+    Game(List<Board> savedBoards, ArmyStore savedArmies, List<Army> savedRetreats, List<Order> savedOrders, int turn,
+         MapTopology gameMap)
+    {
+        map = gameMap;
+        savedBoards.forEach(this::addBoard);
+        armies = savedArmies;
+        hashArmiesFrom(0);
+        retreatingArmies.addAll(savedRetreats);
+        displayedOrders.addAll(savedOrders);
+        if (!savedOrders.isEmpty())
+        {
+            // Which resolution each order came from isn't saved, so they all go together.
+            ordersPerResolution.add(savedOrders.size());
+        }
+        armiesOnBoards = armies.size();
+        boardsToDeactivate.clear();
+        takeSnapshot(turn);
+        turnLog.recordStart(getSnapshot());
+    }
+
+    // Restores a game from a snapshot, e.g. to go back to an earlier turn. The restored game's history starts there.
+    public Game(GameSnapshot snapshot)
+    {
+        map = snapshot.getMap();
+        for (BoardSnapshot boardSnapshot : snapshot.getBoards())
+        {
+            Board board = new Board(boardSnapshot.getX(), boardSnapshot.getY());
+            board.setActive(boardSnapshot.isActive());
+            addBoard(board);
+            boardSnapshot.getArmies().forEach(this::addArmy);
+        }
+        retreatingArmies.addAll(snapshot.getRetreatingArmies());
+        // The snapshot's hash also covers its archived boards, which aren't added back, and the retreats, which are
+        // added on top whenever the hash is asked for.
+        positionHash = snapshot.getPositionHash();
+        for (Army army : retreatingArmies)
+        {
+            positionHash -= Zobrist.retreat(army.getLocationKey(), army.getOwner());
+        }
+        history.add(snapshot);
+        changedBoards.clear();
+        armiesOnBoards = armies.size();
+        boardsToDeactivate.clear();
+        boardsInSnapshot = boards.size();
+        boardsCreated = snapshot.getBoardsCreated();
+        archive = snapshot.getArchivedBoardMap();
+        turnLog.recordStart(snapshot);
+    }
+
+    // Only armies added since the last call are looked at, as every earlier one already has its board.
     public void updateBoards()
     {
-        for (Army army : armies)
+        for (; armiesOnBoards < armies.size(); armiesOnBoards++)
+        {
+            int x = armies.getX(armiesOnBoards);
+            int y = armies.getY(armiesOnBoards);
+            if (!boardIndex.containsKey(Coordinates.packBoard(x, y)))
+            {
+                addBoard(new Board(x, y));
+            }
+        }
+    }
+
+    // Makes the next updateBoards look at every army again, for measuring a pass over the whole army store. Boards that
+    // already exist are kept, so nothing changes.
+    public void revisitAllArmies()
+    {
+        armiesOnBoards = 0;
+    }
+
+    private void addBoard(Board board)
+    {
+        positionHash += Zobrist.board(board.getKey()) + (board.isActive() ? Zobrist.active(board.getKey()) : 0);
+        boards.add(board);
+        boardIndex.put(board.getKey(), board);
+        activeBoardsChanged = true;
+        changedBoards.add(board.getKey());
+        Integer rowEnd = rowEnds.get(board.getY());
+        if (rowEnd == null || board.getX() > rowEnd)
         {
-            if (boards.stream().noneMatch(board -> board.getPosition()[0] == army.getLocation()[0] && board.getPosition()[1] == army.getLocation()[1]))
+            rowEnds.put(board.getY(), board.getX());
+            if (rowEnd != null)
             {
-                boards.add(new Board(army.getLocation()[0], army.getLocation()[1]));
+                boardsToDeactivate.add(Coordinates.packBoard(rowEnd, board.getY()));
             }
         }
+        else
+        {
+            boardsToDeactivate.add(board.getKey());
+        }
+    }
+
+    public RetentionPolicy getRetentionPolicy()
+    {
+        return retentionPolicy;
+    }
+
+    // Takes effect straight away for orders and snapshots, and at the next archiving pass for boards.
+    public void setRetentionPolicy(RetentionPolicy policy)
+    {
+        retentionPolicy = policy;
+        trimDisplayedOrders();
+        trimHistory();
     }
 
     public ArrayList<Order> parseOrders(ArrayList<String> ordersText)
     {
-        ArrayList<Order> orders = new ArrayList<>();
-        for (String orderText : ordersText) {
-            Order order;
-            String[] words = orderText.split(" ");
-            if (words.length > 1)
+        ArrayList<Order> orders = new ArrayList<>(ordersText.size());
+        for (String orderText : ordersText)
+        {
+            orders.add(OrderParser.parseOrder(orderText));
+        }
+        return orders;
+    }
+
+    // Orders from outside (e.g. over the network) are checked before they're resolved, since resolving assumes every
+    // move is onto a board that's there. Orders that are merely out of place are still dropped while resolving.
+    public void checkOrders(List<Order> orders)
+    {
+        for (Order order : orders)
+        {
+            if (order instanceof Move)
             {
-                switch (words[1])
+                checkDestination((Move) order);
+            }
+        }
+    }
+
+    // Every retreat has to be for an army that's retreating, and a retreat move has to be onto a board that's there.
+    public void checkRetreats(List<Retreat> retreats)
+    {
+        for (Retreat retreat : retreats)
+        {
+            findRetreatingArmy(retreat);
+            if (retreat instanceof RetreatMove)
+            {
+                RetreatMove move = (RetreatMove) retreat;
+                if (!hasBoard(move.getDestinationX(), move.getDestinationY()))
                 {
-                    case "m":
-                        order = new Move();
-                        order.setLocation(words[0].split(","));
-                        ((Move) order).setDestination(words[2].split(","));
-                        break;
-                    case "s":
-                        order = new Support();
-                        order.setLocation(words[0].split(","));
-                        ((Support) order).setSupportLocation(words[2].split(","));
-                        ((Support) order).setSupportDestination(words[3].split(","));
-                        break;
-                    default:
-                        order = new Hold();
-                        order.setLocation(words[0].split(","));
+                    throw new IllegalOrderException("No board at " + move.getDestinationX() + "," +
+                            move.getDestinationY() + " for the retreat from " + describeLocation(move));
                 }
             }
-            else
+        }
+    }
+
+    private void checkDestination(Move move)
+    {
+        if (!hasBoard(move.getDestinationX(), move.getDestinationY()))
+        {
+            throw new IllegalOrderException("No board at " + move.getDestinationX() + "," + move.getDestinationY() +
+                    " for the move from " + describeLocation(move));
+        }
+    }
+
+    private Army findRetreatingArmy(Retreat retreat)
+    {
+        if (retreatingArmies != null)
+        {
+            for (Army army : retreatingArmies)
             {
-                order = new Hold();
-                order.setLocation(words[0].split(","));
+                if (army.getLocationKey() == retreat.getLocationKey())
+                {
+                    return army;
+                }
             }
-
-            orders.add(order);
         }
-        return orders;
+        throw new IllegalOrderException("No army is retreating from " + describeLocation(retreat));
+    }
+
+    private static String describeLocation(Order order)
+    {
+        return order.getLocationX() + "," + order.getLocationY() + "," + order.getLocationZ();
     }
 
     public boolean isRetreatNeeded()
@@ -75,33 +307,70 @@ public class Game {
         return retreatingArmies != null && retreatingArmies.size() > 0;
     }
 
+    public List<Army> getRetreatingArmies()
+    {
+        return Collections.unmodifiableList(retreatingArmies);
+    }
+
     public ArrayList<Retreat> parseRetreats(ArrayList<String> retreatsText)
     {
-        ArrayList<Retreat> retreats = new ArrayList<>();
+        ArrayList<Retreat> retreats = new ArrayList<>(retreatsText.size());
         for (String retreatText : retreatsText)
         {
-            Retreat retreat;
-            String[] words = retreatText.split(" ");
-            switch (words[1])
-            {
-                case "m":
-                    retreat = new RetreatMove();
-                    retreat.setLocation(words[0].split(","));
-                    ((RetreatMove) retreat).setDestination(words[2].split(","));
-                    break;
-                default:
-                    retreat = new Disband();
-                    retreat.setLocation(words[0].split(","));
-                    break;
-            }
-
-            retreats.add(retreat);
+            retreats.add(OrderParser.parseRetreat(retreatText));
         }
         return retreats;
     }
 
+    // Copy-make for searching ahead: resolves the orders on a copy of the game and returns the copy, leaving this game
+    // and the orders as they were, so any number of threads can try orders from the same game at once. The copy doesn't
+    // log its turns.
+    public Game resolvedCopy(List<Order> orders)
+    {
+        ArrayList<Order> orderCopies = new ArrayList<>(orders.size());
+        for (Order order : orders)
+        {
+            orderCopies.add(Replay.copyOrder(order));
+        }
+        Game copy = new Game(this, true);
+        copy.resolveOrders(orderCopies, false);
+        return copy;
+    }
+
     public void resolveOrders(ArrayList<Order> orders, boolean isRetreat)
     {
+        resolveOrders(orders, isRetreat, null);
+    }
+
+    // Given a pool, orders are split into groups that share no boards and the groups are adjudicated in parallel. The
+    // results are merged back into the order the orders were given in, so the outcome is the same as resolving serially.
+    public void resolveOrders(ArrayList<Order> orders, boolean isRetreat, ForkJoinPool pool)
+    {
+        MetricsSink sink = Instrumentation.getSink();
+        long allocatedAtStart = sink == null ? -1 : Instrumentation.startAllocationSample();
+        // Filtering removes orders from the list, so keep hold of them all for the log.
+        ArrayList<Order> submittedOrders = turnLog == null ? null : new ArrayList<>(orders);
+        applyOrders(orders, isRetreat, pool, allocatedAtStart >= 0);
+        archiveOldBoards();
+        takeSnapshot();
+        lastMetrics.endPhase("take snapshot");
+        if (turnLog != null)
+        {
+            turnLog.recordOrders(submittedOrders, isRetreat, getSnapshot().getChecksum());
+            lastMetrics.endPhase("log turn");
+        }
+        if (sink != null)
+        {
+            Instrumentation.finish(sink, lastMetrics, allocatedAtStart);
+        }
+    }
+
+    // When sampleAllocation is set, groups adjudicated on other threads measure what they allocate there as well.
+    private void applyOrders(ArrayList<Order> orders, boolean isRetreat, ForkJoinPool pool, boolean sampleAllocation)
+    {
+        ResolutionMetrics metrics = new ResolutionMetrics();
+        int orderCount = orders.size();
+        int boardCount = boards.size();
         retreatingArmies = new ArrayList<>();
         // LOGIC FOR PROCESSING ORDERS GOES HERE
         /**
@@ -120,50 +389,344 @@ public class Game {
          */
         // Remove orders where the originating unit is on an inactive board.
         orders.removeIf(order -> {
-            Board board = getBoard(order.getLocation());
+            Board board = getBoard(order.getLocationKey());
             return board == null || !board.isActive();
         });
 
+        // Remove orders from locations with no army (e.g. a typo or a stale order), which would otherwise give an army
+        // to nobody. Retreating armies aren't in the army store, but their moves already say whose they are.
+        if (!isRetreat)
+        {
+            orders.removeIf(order -> armies.getOwnerAt(order.getLocationKey()) == null);
+        }
+
         // Remove support orders where the unit to be supported is on an inactive board.
         orders.removeIf(order -> {
             if (order instanceof Support)
             {
                 Support support = (Support) order;
-                Board board = getBoard(support.getSupportLocation());
+                Board board = getBoard(support.getSupportLocationKey());
                 return board == null || !board.isActive();
             }
             return false;
         });
 
-        // Remove orders which move beyond the +-1 range.
+        // Remove orders which move beyond the +-1 range, or to a province that isn't the unit's own or one bordering it.
         orders.removeIf(order -> {
             if (order instanceof Move)
             {
                 Move move = (Move) order;
-                return Math.abs(move.getLocation()[0] - move.getDestination()[0]) > 1 ||
-                        Math.abs(move.getLocation()[1] - move.getDestination()[1]) > 1;
+                return Math.abs(move.getLocationX() - move.getDestinationX()) > 1 ||
+                        Math.abs(move.getLocationY() - move.getDestinationY()) > 1 ||
+                        !map.canReach(move.getLocationZ(), move.getDestinationZ());
             }
             if (order instanceof Support)
             {
                 Support support = (Support) order;
-                return Math.abs(support.getLocation()[0] - support.getSupportDestination()[0]) > 1 ||
-                        Math.abs(support.getLocation()[1] - support.getSupportDestination()[1]) > 1;
+                return Math.abs(support.getLocationX() - support.getSupportDestinationX()) > 1 ||
+                        Math.abs(support.getLocationY() - support.getSupportDestinationY()) > 1 ||
+                        !map.canReach(support.getLocationZ(), support.getSupportDestinationZ());
             }
             return false;
         });
 
         // TODO: Ensure further legality of moves?
 
-        // Set the player for each order (for now, assuming the requisite army exists).
+        // Moves can reach archived boards, and a retreat also copies its destination board onto the next one along, so
+        // bring any of those back before anything looks at them.
+        if (archive.size() > 0)
+        {
+            for (Order order : orders)
+            {
+                if (order instanceof Move)
+                {
+                    Move move = (Move) order;
+                    restoreBoard(move.getDestinationX(), move.getDestinationY());
+                    if (isRetreat)
+                    {
+                        restoreBoard(move.getDestinationX() + 1, move.getDestinationY());
+                    }
+                }
+            }
+        }
+
+        // Set the player for each order from the army giving it.
         for (Order order : orders)
         {
             if (order.getPlayer() == null)
             {
-                Optional<Army> armyStream = armies.stream().filter(army -> Arrays.equals(army.getLocation(), order.getLocation())).findFirst();
-                armyStream.ifPresent(army -> order.setPlayer(army.getOwner()));
+                order.setPlayer(armies.getOwnerAt(order.getLocationKey()));
+            }
+        }
+
+        for (int i = 0; i < orders.size(); i++)
+        {
+            orders.get(i).setIndex(i);
+        }
+
+        metrics.count(ResolutionMetrics.ORDERS_FILTERED, orderCount - orders.size());
+        metrics.endPhase("filter orders");
+
+        Resolution resolution;
+        List<ArrayList<Order>> components = pool == null ? List.of(orders) : OrderComponents.split(orders);
+        if (components.size() > 1)
+        {
+            Thread resolvingThread = Thread.currentThread();
+            List<ResolutionMetrics> componentMetrics = components.stream()
+                    .map(component -> new ResolutionMetrics())
+                    .collect(Collectors.toList());
+            List<Resolution> resolutions = pool.submit(() -> IntStream.range(0, components.size()).parallel()
+                    .mapToObj(i -> adjudicateComponent(components.get(i), componentMetrics.get(i),
+                            sampleAllocation && Thread.currentThread() != resolvingThread))
+                    .collect(Collectors.toList())).join();
+            resolution = Resolution.merge(resolutions);
+            // The groups' phases add up their time on every thread, which replaces the time spent waiting for them.
+            metrics.restartPhase();
+            componentMetrics.forEach(metrics::add);
+        }
+        else
+        {
+            resolution = adjudicate(orders, metrics);
+        }
+        metrics.count(ResolutionMetrics.SUPPORTS_CUT, resolution.supportsCut);
+
+        displayedOrders.addAll(resolution.supportOrders);
+        displayedOrders.addAll(resolution.moveOrders);
+        ordersPerResolution.add(resolution.supportOrders.size() + resolution.moveOrders.size());
+        trimDisplayedOrders();
+        ArrayList<Move> successfulMoves = resolution.successfulMoves;
+        ArrayList<Hold> holdOrders = resolution.holdOrders;
+
+        // Make an army one (relative) space in the future for all successful moves to active boards.
+        for (Move move : successfulMoves)
+        {
+            if (getBoard(move.getDestinationKey()).isActive())
+            {
+                addArmy(new Army(move.getDestinationX() + 1, move.getDestinationY(), move.getDestinationZ(), move.getPlayer()));
+            }
+        }
+
+        if (isRetreat)
+        {
+            // Only copy armies from before the retreats, so no board is copied with another retreat's copies on it.
+            int end = armies.size();
+            // Add armies on the new board created by a retreat.
+            for (Move move : successfulMoves)
+            {
+                copyBoardForward(move.getDestinationX(), move.getDestinationY(), end, null, 0);
+            }
+
+            // Add armies on the new board created by the retreat's departure, except for the retreating unit itself. UNLESS it's moving on the same board, in which case we've already dealt with it above.
+            for (Move move : successfulMoves)
+            {
+                if (move.getLocationX() != move.getDestinationX() || move.getLocationY() != move.getDestinationY())
+                {
+                    copyBoardForward(move.getLocationX(), move.getLocationY(), end, move.getPlayer(), move.getLocationZ());
+                }
+            }
+        }
+        else
+        {
+            // Make an army one space in the future for all holds on active boards, unless something's already there, in which case flag for a retreat.
+            for (Hold hold : holdOrders)
+            {
+                if (getBoard(hold.getLocationKey()).isActive())
+                {
+                    Army army = new Army(hold.getLocationX() + 1, hold.getLocationY(), hold.getLocationZ(), hold.getPlayer());
+                    if (armies.countArmiesAt(army.getLocationKey()) > 1)
+                    {
+                        retreatingArmies.add(army);
+                    }
+                    else
+                    {
+                        addArmy(army);
+                    }
+                }
+            }
+        }
+
+        metrics.endPhase("create armies");
+
+        // TODO: Fix the bit below for retreats as well?
+
+        // For each move to an inactive board, make a new army at that position one higher/lower than the highest/lowest
+        // y position, then duplicate everything at the destination x position to that y position, unless something's
+        // already there, in which case flag for a retreat.
+        for (Move move : successfulMoves)
+        {
+            if (!getBoard(move.getDestinationKey()).isActive())
+            {
+                branchTimeline(move);
+            }
+        }
+
+        metrics.endPhase("branch timelines");
+
+        updateBoards();
+        deactivateBoardsBehindRowEnds();
+        metrics.endPhase("update boards");
+        metrics.count(ResolutionMetrics.RETREATS_FLAGGED, retreatingArmies.size());
+        metrics.count(ResolutionMetrics.BOARDS_CREATED, boards.size() - boardCount);
+        lastMetrics = metrics;
+    }
+
+    // Starts a new timeline one step after the move's destination, below every other timeline for blue and above them
+    // for orange. The moving army arrives there first, then the rest of the destination board is copied across in one
+    // pass, and anything that would land on an army already there has to retreat instead.
+    private void branchTimeline(Move move)
+    {
+        int y;
+        if (move.getPlayer() == Player.BLUE)
+        {
+            y = getExtremeYPosition(false) - 1;
+        }
+        else if (move.getPlayer() == Player.ORANGE)
+        {
+            y = getExtremeYPosition(true) + 1;
+        }
+        else
+        {
+            return;
+        }
+        int x = move.getDestinationX() + 1;
+        addArmy(new Army(x, y, move.getDestinationZ(), move.getPlayer()));
+        int first = armies.size();
+        armies.duplicateBoard(move.getDestinationX(), move.getDestinationY(), x, y, retreatingArmies);
+        hashArmiesFrom(first);
+    }
+
+    // Copies a board's armies from before the given end onto the next board along its row, leaving out the given
+    // owner's army at skippedZ, if there's an owner to skip.
+    private void copyBoardForward(int x, int y, int end, Player skippedOwner, int skippedZ)
+    {
+        int first = armies.size();
+        if (armies.copyBoard(x, y, x + 1, y, end, skippedOwner, skippedZ) > 0)
+        {
+            hashArmiesFrom(first);
+            changedBoards.add(Coordinates.packBoard(x + 1, y));
+        }
+    }
+
+    // Make boards not at the end of their row inactive. Only the end of a row is ever left active, so the boards that can
+    // need deactivating are the ones added behind an end since the last pass and the ends that have been overtaken,
+    // wherever they are in the row. Gaps in a row (e.g. in a synthetic starting position) don't hide anything.
+    private void deactivateBoardsBehindRowEnds()
+    {
+        for (long boardKey : boardsToDeactivate)
+        {
+            Board board = boardIndex.get(boardKey);
+            if (board != null && board.isActive() && board.getX() < rowEnds.get(board.getY()))
+            {
+                board.setActive(false);
+                positionHash -= Zobrist.active(board.getKey());
+                activeBoardsChanged = true;
+                changedBoards.add(board.getKey());
             }
         }
+        boardsToDeactivate = new ArrayList<>();
+    }
+
+    private void trimDisplayedOrders()
+    {
+        int dropped = 0;
+        while (ordersPerResolution.size() > retentionPolicy.getOrderResolutions())
+        {
+            dropped += ordersPerResolution.poll();
+        }
+        if (dropped > 0)
+        {
+            displayedOrders.subList(0, dropped).clear();
+        }
+    }
 
+    private void trimHistory()
+    {
+        if (history.size() > retentionPolicy.getSnapshotCount())
+        {
+            history.subList(0, history.size() - retentionPolicy.getSnapshotCount()).clear();
+        }
+    }
+
+    // Moves inactive boards more than the policy's horizon behind their row's end out of the working set and into the
+    // archive, taking their armies out of the store. Boards changed or added since the latest snapshot wait for a later
+    // pass, so every archived board is exactly as it is in that snapshot. Passes only happen every horizon resolutions,
+    // so rebuilding the store is paid for once per horizon's worth of boards in each row.
+    private void archiveOldBoards()
+    {
+        int horizon = retentionPolicy.getArchiveHorizon();
+        if (horizon == RetentionPolicy.UNLIMITED || ++resolutionsSinceArchive < horizon)
+        {
+            return;
+        }
+        resolutionsSinceArchive = 0;
+        GameSnapshot previous = getSnapshot();
+        ArrayList<Board> keptBoards = new ArrayList<>(boards.size());
+        int archivedCount = 0;
+        for (int i = 0; i < boards.size(); i++)
+        {
+            Board board = boards.get(i);
+            if (i < boardsInSnapshot && !board.isActive() && board.getX() < rowEnds.get(board.getY()) - horizon
+                    && !changedBoards.contains(board.getKey()))
+            {
+                archive = archive.put(board.getKey(), new ArchivedBoard(previous.getBoard(board.getKey())));
+                archivedBoards.add(board.getKey());
+                boardIndex.remove(board.getKey());
+                archivedCount++;
+            }
+            else
+            {
+                keptBoards.add(board);
+            }
+        }
+        if (archivedCount > 0)
+        {
+            boards = keptBoards;
+            boardsInSnapshot -= archivedCount;
+            armies = armies.withoutBoards(archivedBoards);
+            armiesOnBoards = armies.size();
+        }
+    }
+
+    // Brings an archived board back into the working set as it was, if the board is archived.
+    private void restoreBoard(int x, int y)
+    {
+        long key = Coordinates.packBoard(x, y);
+        ArchivedBoard archived = archive.get(key);
+        if (archived == null)
+        {
+            return;
+        }
+        archive = archive.remove(key);
+        restoredBoards.put(key, archived);
+        Board board = new Board(x, y);
+        board.setActive(false);
+        boards.add(board);
+        boardIndex.put(key, board);
+        // The board and its armies never stopped counting towards the position hash.
+        for (int army = 0; army < archived.getArmyCount(); army++)
+        {
+            armies.add(x, y, archived.getArmyZ(army), archived.getArmyOwner(army));
+        }
+        armiesOnBoards = armies.size();
+    }
+
+    // Works out which moves succeed and which units hold, without changing the game.
+    // Allocation on the resolving thread is measured for the whole resolution, so only other threads measure their own.
+    private Resolution adjudicateComponent(ArrayList<Order> orders, ResolutionMetrics metrics, boolean sampleAllocation)
+    {
+        long allocatedAtStart = sampleAllocation ? Instrumentation.threadAllocatedBytes() : -1;
+        // Don't count the time spent waiting for a thread.
+        metrics.restartPhase();
+        Resolution resolution = adjudicate(orders, metrics);
+        if (allocatedAtStart >= 0)
+        {
+            metrics.addAllocatedBytes(Instrumentation.threadAllocatedBytes() - allocatedAtStart);
+        }
+        return resolution;
+    }
+
+    private Resolution adjudicate(ArrayList<Order> orders, ResolutionMetrics metrics)
+    {
         // Generate lists of each order type.
         ArrayList<Support> supportOrders = new ArrayList<>();
         ArrayList<Move> moveOrders = new ArrayList<>();
@@ -188,24 +751,26 @@ public class Game {
         for (Support support : supportOrders)
         {
             Hold hold = new Hold();
-            hold.setLocation(support.getLocation());
+            hold.setLocation(support.getLocationX(), support.getLocationY(), support.getLocationZ());
             hold.setPlayer(support.getPlayer());
+            hold.setIndex(support.getIndex());
             holdOrders.add(hold);
         }
 
-        displayedOrders.addAll(supportOrders);
-        displayedOrders.addAll(moveOrders);
+        metrics.endPhase("sort orders");
+
+        // Index the moves by destination (and location) once, for support cutting and move chains.
+        MoveResolver moveResolver = new MoveResolver(moveOrders);
 
         // Find supports that should be cut and cut them (but not units of the same player or units attacking support against themselves!).
         ArrayList<Support> filteredSupportOrders = new ArrayList<>();
         for (Support support : supportOrders)
         {
             boolean keepSupport = true;
-            for (Move move : moveOrders)
+            for (Move move : moveResolver.getIncomingMoves(support.getLocationKey()))
             {
-                if (Arrays.equals(move.getDestination(), support.getLocation())
-                        && move.getPlayer() != support.getPlayer()
-                        && !Arrays.equals(move.getLocation(), support.getSupportDestination()))
+                if (move.getPlayer() != support.getPlayer()
+                        && move.getLocationKey() != support.getSupportDestinationKey())
                 {
                     keepSupport = false;
                 }
@@ -213,60 +778,55 @@ public class Game {
             if (keepSupport)
                 filteredSupportOrders.add(support);
         }
+        metrics.endPhase("cut supports");
+
+        // Bucket the remaining supports by the location and destination they support.
+        HashMap<Long, HashMap<Long, Integer>> supportCounts = new HashMap<>();
+        for (Support support : filteredSupportOrders)
+        {
+            supportCounts.computeIfAbsent(support.getSupportLocationKey(), key -> new HashMap<>())
+                    .merge(support.getSupportDestinationKey(), 1, Integer::sum);
+        }
 
         // For each move, find all its incoming supports and add them to its strength.
         for (Move move : moveOrders)
         {
-            Stream<Support> incomingSupports = filteredSupportOrders.stream().filter(support ->
-                    Arrays.equals(support.getSupportLocation(), move.getLocation()) &&
-                            Arrays.equals(support.getSupportDestination(), move.getDestination()));
-            move.addStrength((int) incomingSupports.count());
+            move.addStrength(countSupports(supportCounts, move.getLocationKey(), move.getDestinationKey()));
         }
 
         // TODO: Do something to give hold orders by default for units not ordered?
 
         // For each hold, find all its incoming supports and add them to its strength.
+        HashMap<Long, Hold> firstHolds = new HashMap<>();
         for (Hold hold : holdOrders)
         {
-            Stream<Support> incomingSupports = filteredSupportOrders.stream().filter(support ->
-                    Arrays.equals(support.getSupportLocation(), hold.getLocation()) &&
-                            Arrays.equals(support.getSupportDestination(), hold.getLocation()));
-            hold.addStrength((int) incomingSupports.count());
+            hold.addStrength(countSupports(supportCounts, hold.getLocationKey(), hold.getLocationKey()));
+            firstHolds.putIfAbsent(hold.getLocationKey(), hold);
         }
+        metrics.endPhase("add support strength");
 
-        // For each move, find the front end of its move chain (avoid duplicates!).
-        ArrayList<Move> frontMoves = new ArrayList<>();
-        for (Move move : moveOrders)
-        {
-            // I sure hope streams aren't destructive...
-            Stream<Move> movesFromDestination = moveOrders.stream().filter(
-                    moveOrder -> Arrays.equals(move.getDestination(), moveOrder.getLocation()));
-            if (movesFromDestination.findFirst().isEmpty() && !frontMoves.contains(move))
-            {
-                frontMoves.add(move);
-            }
-        }
+        // For each move, find the front end of its move chain.
+        ArrayList<Move> frontMoves = moveResolver.getFrontMoves();
 
         // For each front of a move chain, determine whether it's successful by comparing its destination to other moves
         // and holds. If it's moving to an inactive board, compare with army locations.
         ArrayList<Move> successfulMoves = new ArrayList<>();
         for (Move move : frontMoves)
         {
-            Stream<Move> competingMoves = moveOrders.stream().filter(competingMove ->
-                    !move.equals(competingMove) &&
-                    Arrays.equals(move.getDestination(), competingMove.getDestination()));
-            Optional<Hold> competingHold = holdOrders.stream().filter(hold ->
-                    Arrays.equals(move.getDestination(), hold.getLocation())).findFirst();
-            Board targetBoard = getBoard(move.getDestination());
-            Stream<Army> armiesAtDestination = armies.stream().filter(army -> Arrays.equals(army.getLocation(), move.getDestination()));
-            if (!targetBoard.isActive() && armiesAtDestination.count() > 0 && move.getStrength() == 1) {
+            Stream<Move> competingMoves = moveResolver.getIncomingMoves(move.getDestinationKey()).stream().filter(
+                    competingMove -> !move.equals(competingMove));
+            Hold competingHold = firstHolds.get(move.getDestinationKey());
+            Board targetBoard = getBoard(move.getDestinationKey());
+            if (!targetBoard.isActive() && armies.countArmiesAt(move.getDestinationKey()) > 0 && move.getStrength() == 1) {
                 Hold hold = new Hold();
-                hold.setLocation(move.getLocation());
+                hold.setLocation(move.getLocationX(), move.getLocationY(), move.getLocationZ());
                 hold.setPlayer(move.getPlayer());
+                hold.setIndex(move.getIndex());
                 holdOrders.add(hold);
+                firstHolds.putIfAbsent(hold.getLocationKey(), hold);
             }
             else if (competingMoves.allMatch(competingMove -> move.getStrength() > competingMove.getStrength()) &&
-                    (competingHold.isEmpty() || move.getStrength() > competingHold.get().getStrength()))
+                    (competingHold == null || move.getStrength() > competingHold.getStrength()))
             {
                 move.setSuccessful(true);
                 successfulMoves.add(move);
@@ -274,144 +834,22 @@ public class Game {
             else
             {
                 Hold hold = new Hold();
-                hold.setLocation(move.getLocation());
+                hold.setLocation(move.getLocationX(), move.getLocationY(), move.getLocationZ());
                 hold.setPlayer(move.getPlayer());
+                hold.setIndex(move.getIndex());
                 holdOrders.add(hold);
+                firstHolds.putIfAbsent(hold.getLocationKey(), hold);
             }
         }
 
-        // Work backwards through each move chain to find successful moves...somehow? Conflicts along the way could get messy...
-        for (Move frontMove : frontMoves)
-        {
-            backtrackMoves(frontMove, moveOrders, successfulMoves, holdOrders);
-        }
-
-        // Make an army one (relative) space in the future for all successful moves to active boards.
-        for (Move move : successfulMoves)
-        {
-            int[] destination = move.getDestination();
-            if (getBoard(destination).isActive())
-            {
-                armies.add(new Army(destination[0] + 1, destination[1], destination[2], move.getPlayer()));
-            }
-        }
-
-        if (isRetreat)
-        {
-            ArrayList<Army> armiesToDuplicate = new ArrayList<>();
-            // Add armies on the new board created by a retreat.
-            for (Move move : successfulMoves)
-            {
-                armies.stream().filter(army -> army.getLocation()[0] == move.getDestination()[0] && army.getLocation()[1] == move.getDestination()[1]).forEach(army -> {
-                    armiesToDuplicate.add(new Army(army.getLocation()[0] + 1, army.getLocation()[1], army.getLocation()[2], army.getOwner()));
-                });
-            }
-
-            // Add armies on the new board created by the retreat's departure, except for the retreating unit itself. UNLESS it's moving on the same board, in which case we've already dealt with it above.
-            for (Move move : successfulMoves)
-            {
-                if (move.getLocation()[0] != move.getDestination()[0] || move.getLocation()[1] != move.getDestination()[1])
-                {
-                    armies.stream().filter(army -> army.getLocation()[0] == move.getLocation()[0] && army.getLocation()[1] == move.getLocation()[1] &&
-                            !(army.getLocation()[2] == move.getLocation()[2] && army.getOwner() == move.getPlayer()))
-                            .forEach(army -> {
-                                armiesToDuplicate.add(new Army(army.getLocation()[0] + 1, army.getLocation()[1], army.getLocation()[2], army.getOwner()));
-                            });
-                }
-            }
-
-            armies.addAll(armiesToDuplicate);
-
-        }
-        else
-        {
-            // Make an army one space in the future for all holds on active boards, unless something's already there, in which case flag for a retreat.
-            for (Hold hold : holdOrders)
-            {
-                int[] location = hold.getLocation();
-                if (getBoard(location).isActive())
-                {
-                    Army army = new Army(location[0] + 1, location[1], location[2], hold.getPlayer());
-                    Stream<Army> overlapArmies = armies.stream().filter(existingArmy ->
-                            Arrays.equals(existingArmy.getLocation(), army.getLocation()));
-                    if (overlapArmies.count() > 1)
-                    {
-                        retreatingArmies.add(army);
-                    }
-                    else
-                    {
-                        armies.add(army);
-                    }
-                }
-            }
-        }
-
-        // TODO: Fix the bit below for retreats as well?
-
-        // For each move to an inactive board, make a new army at that position one higher/lower than the highest/lowest
-        // y position, then duplicate everything at the destination x position to that y position, unless something's
-        // already there, in which case flag for a retreat.
-        for (Move move : successfulMoves)
-        {
-            int[] destination = move.getDestination();
-            if (!getBoard(destination).isActive())
-            {
-                switch (move.getPlayer())
-                {
-                    case BLUE:
-                        int yPosMin = getExtremeYPosition(false) - 1;
-                        armies.add(new Army(move.getDestination()[0] + 1, yPosMin, move.getDestination()[2], Player.BLUE));
-                        Stream<Army> armiesToDuplicateBelow = armies.stream().filter(army -> army.getLocation()[0] == move.getDestination()[0] && army.getLocation()[1] == move.getDestination()[1]);
-                        ArrayList<Army> duplicatedArmiesBelow = new ArrayList<>();
-                        armiesToDuplicateBelow.forEach(army -> {
-                            Army newArmy = new Army(army.getLocation()[0] + 1, yPosMin, army.getLocation()[2], army.getOwner());
-                            Stream<Army> overlapArmies = armies.stream().filter(existingArmy -> Arrays.equals(existingArmy.getLocation(), newArmy.getLocation()));
-                            if (overlapArmies.count() > 0)
-                            {
-                                retreatingArmies.add(newArmy);
-                            }
-                            else
-                            {
-                                duplicatedArmiesBelow.add(newArmy);
-                            }
-                        });
-                        armies.addAll(duplicatedArmiesBelow);
-                        break;
-                    case ORANGE:
-                        int yPosMax = getExtremeYPosition(true) + 1;
-                        armies.add(new Army(move.getDestination()[0] + 1, yPosMax, move.getDestination()[2], Player.ORANGE));
-                        Stream<Army> armiesToDuplicateAbove = armies.stream().filter(army -> army.getLocation()[0] == move.getDestination()[0] && army.getLocation()[1] == move.getDestination()[1]);
-                        ArrayList<Army> duplicatedArmiesAbove = new ArrayList<>();
-                        armiesToDuplicateAbove.forEach(army -> {
-                            Army newArmy = new Army(army.getLocation()[0] + 1, yPosMax, army.getLocation()[2], army.getOwner());
-                            Stream<Army> overlapArmies = armies.stream().filter(existingArmy -> Arrays.equals(existingArmy.getLocation(), newArmy.getLocation()));
-                            if (overlapArmies.count() > 0)
-                            {
-                                retreatingArmies.add(newArmy);
-                            }
-                            else
-                            {
-                                duplicatedArmiesAbove.add(newArmy);
-                            }
-                        });
-                        armies.addAll(duplicatedArmiesAbove);
-                        break;
-                }
-            }
-        }
-
-        updateBoards();
+        // Work backwards through each move chain to find successful moves, then settle any closed loops of moves.
+        moveResolver.resolveChains(frontMoves, successfulMoves, holdOrders);
+        moveResolver.resolveCycles(successfulMoves, holdOrders);
+        metrics.endPhase("resolve moves");
 
-        // Make boards not at the end of their row inactive.
-        for (Board board : boards)
-        {
-            Stream<Board> boardRow = boards.stream().filter(b -> b.getPosition()[1] == board.getPosition()[1]);
-            int endPosition = boardRow.map(b -> b.getPosition()[0]).max(Integer::compareTo).orElseThrow();
-            if (board.getPosition()[0] != endPosition)
-            {
-                board.setActive(false);
-            }
-        }
+        Resolution resolution = new Resolution(supportOrders, moveOrders, successfulMoves, holdOrders);
+        resolution.supportsCut = supportOrders.size() - filteredSupportOrders.size();
+        return resolution;
     }
 
     public void resolveRetreats(ArrayList<Retreat> retreats)
@@ -428,143 +866,239 @@ public class Game {
             {
                 RetreatMove retreatMove = (RetreatMove) reatreat;
                 Move move = new Move();
-                move.setLocation(retreatMove.getLocation());
-                move.setDestination(retreatMove.getDestination());
+                move.setLocation(retreatMove.getLocationX(), retreatMove.getLocationY(), retreatMove.getLocationZ());
+                move.setDestination(retreatMove.getDestinationX(), retreatMove.getDestinationY(), retreatMove.getDestinationZ());
                 moveOrders.add(move);
 
-                Army matchingRetreat = retreatingArmies.stream()
-                        .filter(army -> Arrays.equals(army.getLocation(), move.getLocation())).findFirst().orElseThrow();
-                move.setPlayer(matchingRetreat.getOwner());
+                move.setPlayer(findRetreatingArmy(retreatMove).getOwner());
             }
         }
-        resolveOrders(moveOrders, true);
+        MetricsSink sink = Instrumentation.getSink();
+        long allocatedAtStart = sink == null ? -1 : Instrumentation.startAllocationSample();
+        applyOrders(moveOrders, true, null, false);
 
         retreatingArmies.clear();
+        archiveOldBoards();
+        takeSnapshot();
+        lastMetrics.endPhase("take snapshot");
+        if (turnLog != null)
+        {
+            turnLog.recordRetreats(retreats, getSnapshot().getChecksum());
+            lastMetrics.endPhase("log turn");
+        }
+        if (sink != null)
+        {
+            Instrumentation.finish(sink, lastMetrics, allocatedAtStart);
+        }
     }
 
-    private Board getBoard(int[] location)
-    {
-        Stream<Board> boardStream = boards.stream().filter(
-                board -> board.getPosition()[0] == location[0] && board.getPosition()[1] == location[1]);
-        return boardStream.findFirst().orElse(null);
-    }
-
-    private int getExtremeYPosition(boolean max)
+    // Records the current state on top of the previous snapshot. Only changed boards are copied; the rest are shared.
+    private void takeSnapshot()
     {
-        return armies.stream().map(army -> army.getLocation()[1]).reduce(0, (acc, value) ->
-                max ? Integer.max(acc, value) : Integer.min(acc, value));
+        GameSnapshot previous = getSnapshot();
+        takeSnapshot(previous == null ? 0 : previous.getTurn() + 1);
     }
 
-    public void backtrackMoves(Move frontMove, ArrayList<Move> allMoves, ArrayList<Move> successfulMoves, ArrayList<Hold> holdOrders)
+    private void takeSnapshot(int turn)
     {
-        Stream<Move> backMoves = allMoves.stream().filter(move -> Arrays.equals(move.getDestination(),frontMove.getLocation()));
-        Move backMovesMax;
-        try
+        GameSnapshot previous = getSnapshot();
+        PersistentLongMap<BoardSnapshot> boardSnapshots = previous == null ? PersistentLongMap.empty() : previous.getBoardMap();
+        long boardHashes = previous == null ? 0 : previous.getBoardHashes();
+        // Archived boards leave the board map but still count towards the hashes.
+        for (long boardKey : archivedBoards)
         {
-            backMovesMax = allMoves.stream().filter(move -> Arrays.equals(move.getDestination(), frontMove.getLocation())).max(Comparator.comparingInt(Move::getStrength)).orElseThrow();
+            boardSnapshots = boardSnapshots.remove(boardKey);
         }
-        catch (NoSuchElementException e)
+        // New boards are numbered in the order they were created, and restored ones take their old number and hash back.
+        for (int i = boardsInSnapshot; i < boards.size(); i++)
         {
-            // There are no moves earlier in the chain.
-            return;
+            Board board = boards.get(i);
+            ArchivedBoard restored = restoredBoards.get(board.getKey());
+            BoardSnapshot boardSnapshot = snapshotBoard(board, restored == null ? boardsCreated++ : restored.getCreationIndex());
+            boardSnapshots = boardSnapshots.put(board.getKey(), boardSnapshot);
+            boardHashes += boardSnapshot.getHash() - (restored == null ? 0 : restored.getHash());
         }
-        Stream<Move> matchingStrengthMoves = allMoves.stream().filter(move -> Arrays.equals(move.getDestination(), frontMove.getLocation())).filter(move -> move.getStrength() == backMovesMax.getStrength());
-        if (matchingStrengthMoves.count() > 1)
+        boardsInSnapshot = boards.size();
+        for (long boardKey : changedBoards)
         {
-            // Back moves are at most of equal strength, so are not successful.
-            backMoves.forEach(move -> {
-                Hold hold = new Hold();
-                hold.setLocation(move.getLocation());
-                hold.setPlayer(move.getPlayer());
-                holdOrders.add(hold);
-                backtrackMoves(move, allMoves, successfulMoves, holdOrders);
-            });
+            BoardSnapshot previousBoard = previous == null ? null : previous.getBoard(boardKey);
+            if (previousBoard != null)
+            {
+                Board board = boardIndex.get(boardKey);
+                BoardSnapshot boardSnapshot = snapshotBoard(board, previousBoard.getCreationIndex());
+                boardSnapshots = boardSnapshots.put(boardKey, boardSnapshot);
+                boardHashes += boardSnapshot.getHash() - previousBoard.getHash();
+            }
         }
-        else if (frontMove.isSuccessful())
+        // Start a new set rather than clearing, as iterating a cleared set still visits every bucket it ever grew to.
+        changedBoards = new HashSet<>();
+        archivedBoards.clear();
+        restoredBoards.clear();
+        history.add(new GameSnapshot(turn, boardSnapshots, archive, retreatingArmies, boardHashes, boardsCreated,
+                getPositionHash(), map));
+        trimHistory();
+    }
+
+    private BoardSnapshot snapshotBoard(Board board, int creationIndex)
+    {
+        return new BoardSnapshot(board, armies.getArmiesOnBoard(board.getX(), board.getY()), creationIndex);
+    }
+
+    public GameSnapshot getSnapshot()
+    {
+        return history.isEmpty() ? null : history.get(history.size() - 1);
+    }
+
+    public List<GameSnapshot> getHistory()
+    {
+        return Collections.unmodifiableList(history);
+    }
+
+    // Null for copies made by resolvedCopy, which don't log their turns.
+    public TurnLog getTurnLog()
+    {
+        return turnLog;
+    }
+
+    private Board getBoard(long location)
+    {
+        return boardIndex.get(Coordinates.boardOf(location));
+    }
+
+    // The board in the working set at the given position, or null if there isn't one there (or it's archived).
+    Board getBoard(int x, int y)
+    {
+        return boardIndex.get(Coordinates.packBoard(x, y));
+    }
+
+    // Whether there's a board at the given position at all, in the working set or archived.
+    boolean hasBoard(int x, int y)
+    {
+        long key = Coordinates.packBoard(x, y);
+        return boardIndex.containsKey(key) || (archive.size() > 0 && archive.get(key) != null);
+    }
+
+    // The active boards in order of row. The list belongs to the game and mustn't be changed.
+    List<Board> getActiveBoards()
+    {
+        if (activeBoardsChanged)
         {
-            backMovesMax.setSuccessful(true);
-            successfulMoves.add(backMovesMax);
-            backtrackMoves(backMovesMax, allMoves, successfulMoves, holdOrders);
-            backMoves.forEach(move -> {
-                if (!move.equals(backMovesMax))
+            activeBoards.clear();
+            rowEnds.forEach((y, x) -> {
+                Board board = boardIndex.get(Coordinates.packBoard(x, y));
+                if (board != null && board.isActive())
                 {
-                    Hold hold = new Hold();
-                    hold.setLocation(move.getLocation());
-                    hold.setPlayer(move.getPlayer());
-                    holdOrders.add(hold);
-                    backtrackMoves(move, allMoves, successfulMoves, holdOrders);
+                    activeBoards.add(board);
                 }
             });
+            activeBoards.sort(Comparator.comparingInt(Board::getY));
+            activeBoardsChanged = false;
         }
-        else if (backMovesMax.getStrength() > 1)
-        {
-            backMovesMax.setSuccessful(true);
-            successfulMoves.add(backMovesMax);
-            Hold frontHold = new Hold();
-            frontHold.setLocation(frontMove.getLocation());
-            frontHold.setPlayer(frontMove.getPlayer());
-            holdOrders.add(frontHold);
-            backtrackMoves(backMovesMax, allMoves, successfulMoves, holdOrders);
-            backMoves.forEach(move -> {
-                if (!move.equals(backMovesMax))
-                {
-                    Hold hold = new Hold();
-                    hold.setLocation(move.getLocation());
-                    hold.setPlayer(move.getPlayer());
-                    holdOrders.add(hold);
-                    backtrackMoves(move, allMoves, successfulMoves, holdOrders);
-                }
-            });
+        return activeBoards;
+    }
+
+    private static int countSupports(HashMap<Long, HashMap<Long, Integer>> supportCounts, long location, long destination)
+    {
+        HashMap<Long, Integer> destinationCounts = supportCounts.get(location);
+        return destinationCounts == null ? 0 : destinationCounts.getOrDefault(destination, 0);
+    }
+
+    public ResolutionMetrics getLastMetrics()
+    {
+        return lastMetrics;
+    }
+
+    private int getExtremeYPosition(boolean max)
+    {
+        return max ? armies.getMaxY() : armies.getMinY();
+    }
+
+    // Every army hashes and is stored by its owner. Resolution drops orders from empty locations before they can make an
+    // army for nobody, so this only catches starting armies without one, before anything has been changed.
+    private void addArmy(Army army)
+    {
+        if (army.getOwner() == null)
+        {
+            throw new IllegalArgumentException("Army at " + army.getX() + "," + army.getY() + "," + army.getZ()
+                    + " has no owner");
         }
-        else
+        positionHash += Zobrist.army(army.getLocationKey(), army.getOwner());
+        armies.add(army);
+        changedBoards.add(Coordinates.boardOf(army.getLocationKey()));
+    }
+
+    // Adds the keys of the armies from the given index on, for armies the store added itself.
+    private void hashArmiesFrom(int first)
+    {
+        for (int army = first; army < armies.size(); army++)
         {
-            backMoves.forEach(move -> {
-                Hold hold = new Hold();
-                hold.setLocation(move.getLocation());
-                hold.setPlayer(move.getPlayer());
-                holdOrders.add(hold);
-                backtrackMoves(move, allMoves, successfulMoves, holdOrders);
-            });
+            positionHash += Zobrist.army(armies.getLocationKey(army), armies.getOwner(army));
         }
     }
 
-    public void displayText()
+    // A Zobrist hash of the position: which boards there are and which are active, the armies on them and the armies
+    // waiting to retreat, archived boards included. The turn doesn't count, so the same position reached by different
+    // orders has the same hash. Games in the same position have the same hash, and games with the same hash are in
+    // the same position barring a collision, so comparing hashes is a cheap equality check.
+    public long getPositionHash()
     {
-        for (Board board : boards)
+        long hash = positionHash;
+        for (Army army : retreatingArmies)
         {
-            System.out.println("\n" + board + ":");
-            ArrayList<Army> armiesOnBoard = new ArrayList<>();
+            hash += Zobrist.retreat(army.getLocationKey(), army.getOwner());
+        }
+        return hash;
+    }
 
-            for (Army army : armies)
-            {
-                if (army.getLocation()[0] == board.getPosition()[0] && army.getLocation()[1] == board.getPosition()[1])
-                {
-                    armiesOnBoard.add(new Army(army.getLocation(), army.getOwner()));
-                }
-            }
+    public MapTopology getMap()
+    {
+        return map;
+    }
+
+    // Boards and armies in the working set, which doesn't include archived boards.
+    public List<Board> getBoards()
+    {
+        return Collections.unmodifiableList(boards);
+    }
+
+    public List<Army> getArmies()
+    {
+        return armies.asList();
+    }
+
+    ArmyStore getArmyStore()
+    {
+        return armies;
+    }
+
+    public List<Order> getDisplayedOrders()
+    {
+        return Collections.unmodifiableList(displayedOrders);
+    }
 
-            for (Army army : armiesOnBoard)
+    public void displayText()
+    {
+        displayText(System.out);
+    }
+
+    public void displayText(PrintStream out)
+    {
+        for (Board board : boards)
+        {
+            out.println("\n" + board + ":");
+            for (int army = armies.firstArmyOnBoard(board.getX(), board.getY()); army >= 0; army = armies.nextArmyOnBoard(army))
             {
-                System.out.println("  " + army.getOwner() + " army at " + army.getLocation()[2]);
+                out.println("  " + armies.getOwner(army) + " army at " + armies.getZ(army));
             }
         }
 
         if (isRetreatNeeded())
         {
-            System.out.println("\nRetreats:");
+            out.println("\nRetreats:");
             for (Army army : retreatingArmies)
             {
-                System.out.println("  " + army.getOwner() + " army at " + "(" + army.getLocation()[0] + "," + army.getLocation()[1] + "," + army.getLocation()[2] + ")");
+                out.println("  " + army.getOwner() + " army at " + "(" + army.getX() + "," + army.getY() + "," + army.getZ() + ")");
             }
         }
     }
-
-    public void displayGraphics(JFrame frame)
-    {
-        SwingUtilities.invokeLater(() -> {
-            GameDisplay display = new GameDisplay(boards, armies, displayedOrders);
-            frame.add(display);
-            frame.setVisible(true);
-        });
-    }
 }
@@ -0,0 +1,248 @@
+package processing;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Saves games in a compact binary format and loads them back from a single read of the whole file.
+//
+// Header: magic "5DDP", format version (short), reserved (short), turn, then the number of boards, armies, retreats and
+// displayed orders (ints). The game's map follows, as MapTopology encodes it, then the records in that order, with every
+// location written as a packed coordinate:
+//   board: key (long), active (byte)
+//   army:  location (long), owner ordinal (byte)
+//   order: type (byte), player ordinal or -1 (byte), location (long), then for a move its destination (long),
+//          strength (int) and success (byte), or for a support its supported location and destination (longs)
+// Boards are in creation order and include any a retention policy has archived, whose armies come after the rest, so a
+// loaded game has everything back in its working set. Version 1 files have no map, and are always on the original board.
+public final class GameFile {
+    private static final int MAGIC = 0x35444450;
+    private static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_MAP = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 4 * 5;
+    private static final int BOARD_BYTES = 8 + 1;
+    private static final int ARMY_BYTES = 8 + 1;
+
+    private static final byte MOVE = 0;
+    private static final byte SUPPORT = 1;
+
+    private static final Player[] PLAYERS = Player.values();
+
+    private GameFile()
+    {
+    }
+
+    public static void save(Game game, Path path) throws IOException
+    {
+        GameSnapshot snapshot = game.getSnapshot();
+        List<BoardSnapshot> boards = snapshot.getAllBoards();
+        ArmyStore armies = game.getArmyStore();
+        ArrayList<ArchivedBoard> archivedBoards = new ArrayList<>(snapshot.getArchivedBoardCount());
+        snapshot.getArchivedBoardMap().forEachValue(archivedBoards::add);
+        int armyCount = armies.size();
+        for (ArchivedBoard board : archivedBoards)
+        {
+            armyCount += board.getArmyCount();
+        }
+        List<Army> retreats = game.getRetreatingArmies();
+        List<Order> orders = game.getDisplayedOrders();
+
+        MapTopology map = game.getMap();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + map.getEncodedSize() + boards.size() * BOARD_BYTES
+                + (armyCount + retreats.size()) * ARMY_BYTES + orderBytes(orders));
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(snapshot.getTurn());
+        buffer.putInt(boards.size());
+        buffer.putInt(armyCount);
+        buffer.putInt(retreats.size());
+        buffer.putInt(orders.size());
+        map.encode(buffer);
+
+        for (BoardSnapshot board : boards)
+        {
+            buffer.putLong(board.getKey());
+            buffer.put((byte) (board.isActive() ? 1 : 0));
+        }
+        for (int army = 0; army < armies.size(); army++)
+        {
+            buffer.putLong(armies.getLocationKey(army));
+            buffer.put((byte) armies.getOwner(army).ordinal());
+        }
+        for (ArchivedBoard board : archivedBoards)
+        {
+            for (int army = 0; army < board.getArmyCount(); army++)
+            {
+                buffer.putLong(Coordinates.pack(board.getX(), board.getY(), board.getArmyZ(army)));
+                buffer.put((byte) board.getArmyOwner(army).ordinal());
+            }
+        }
+        retreats.forEach(army -> putArmy(buffer, army));
+        for (Order order : orders)
+        {
+            putOrder(buffer, order);
+        }
+        buffer.flip();
+
+        // Write next to the target and move it into place, so a failed save never leaves half a game behind.
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static Game load(Path path) throws IOException
+    {
+        // Read into the heap rather than mapped: a mapping is only released once it's garbage collected, and until then
+        // Windows won't let the next save replace the file.
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+        try
+        {
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException(path + " is not a saved game");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION && version != VERSION_WITHOUT_MAP)
+            {
+                throw new IOException(path + " was saved in format version " + version + ", expected " + VERSION);
+            }
+            buffer.getShort();
+            int turn = buffer.getInt();
+            int boardCount = buffer.getInt();
+            int armyCount = buffer.getInt();
+            int retreatCount = buffer.getInt();
+            int orderCount = buffer.getInt();
+            MapTopology map = version == VERSION_WITHOUT_MAP ? MapTopology.DEFAULT : MapTopology.decode(buffer);
+
+            ArrayList<Board> boards = new ArrayList<>(boardCount);
+            for (int i = 0; i < boardCount; i++)
+            {
+                long key = buffer.getLong();
+                Board board = new Board(Coordinates.x(key), Coordinates.y(key));
+                board.setActive(buffer.get() != 0);
+                boards.add(board);
+            }
+            ArmyStore armies = new ArmyStore(armyCount);
+            for (int i = 0; i < armyCount; i++)
+            {
+                long location = buffer.getLong();
+                armies.add(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location), PLAYERS[buffer.get()]);
+            }
+            ArrayList<Army> retreats = new ArrayList<>(retreatCount);
+            for (int i = 0; i < retreatCount; i++)
+            {
+                retreats.add(getArmy(buffer));
+            }
+            ArrayList<Order> orders = new ArrayList<>(orderCount);
+            for (int i = 0; i < orderCount; i++)
+            {
+                orders.add(getOrder(buffer));
+            }
+            return new Game(boards, armies, retreats, orders, turn, map);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e)
+        {
+            throw new IOException(path + " is truncated or corrupt", e);
+        }
+    }
+
+    private static int orderBytes(List<Order> orders)
+    {
+        int bytes = 0;
+        for (Order order : orders)
+        {
+            bytes += 1 + 1 + 8;
+            if (order instanceof Move)
+            {
+                bytes += 8 + 4 + 1;
+            }
+            else if (order instanceof Support)
+            {
+                bytes += 8 + 8;
+            }
+        }
+        return bytes;
+    }
+
+    private static void putArmy(ByteBuffer buffer, Army army)
+    {
+        buffer.putLong(army.getLocationKey());
+        buffer.put((byte) army.getOwner().ordinal());
+    }
+
+    private static Army getArmy(ByteBuffer buffer)
+    {
+        long location = buffer.getLong();
+        return new Army(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location), PLAYERS[buffer.get()]);
+    }
+
+    // Only moves and supports are ever displayed, so those are the only orders saved.
+    private static void putOrder(ByteBuffer buffer, Order order)
+    {
+        buffer.put(order instanceof Move ? MOVE : SUPPORT);
+        buffer.put((byte) (order.getPlayer() == null ? -1 : order.getPlayer().ordinal()));
+        buffer.putLong(order.getLocationKey());
+        if (order instanceof Move)
+        {
+            Move move = (Move) order;
+            buffer.putLong(move.getDestinationKey());
+            buffer.putInt(move.getStrength());
+            buffer.put((byte) (move.isSuccessful() ? 1 : 0));
+        }
+        else
+        {
+            Support support = (Support) order;
+            buffer.putLong(support.getSupportLocationKey());
+            buffer.putLong(support.getSupportDestinationKey());
+        }
+    }
+
+    private static Order getOrder(ByteBuffer buffer) throws IOException
+    {
+        byte type = buffer.get();
+        byte player = buffer.get();
+        long location = buffer.getLong();
+        Order order;
+        if (type == MOVE)
+        {
+            Move move = new Move();
+            long destination = buffer.getLong();
+            move.setDestination(Coordinates.x(destination), Coordinates.y(destination), Coordinates.z(destination));
+            move.addStrength(buffer.getInt() - move.getStrength());
+            move.setSuccessful(buffer.get() != 0);
+            order = move;
+        }
+        else if (type == SUPPORT)
+        {
+            Support support = new Support();
+            long supportLocation = buffer.getLong();
+            long supportDestination = buffer.getLong();
+            support.setSupportLocation(Coordinates.x(supportLocation), Coordinates.y(supportLocation), Coordinates.z(supportLocation));
+            support.setSupportDestination(Coordinates.x(supportDestination), Coordinates.y(supportDestination), Coordinates.z(supportDestination));
+            order = support;
+        }
+        else
+        {
+            throw new IOException("Unknown order type " + type);
+        }
+        order.setLocation(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location));
+        order.setPlayer(player < 0 ? null : PLAYERS[player]);
+        return order;
+    }
+}
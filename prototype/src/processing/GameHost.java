@@ -0,0 +1,111 @@
+package processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Keeps any number of games in memory and adjudicates them on a shared executor. Each game's work goes through its own
+// serial executor, so a game only ever resolves one turn at a time while other games carry on alongside it, and no
+// thread is ever tied up waiting for a particular game.
+public class GameHost {
+    private final ConcurrentHashMap<Long, HostedGame> games = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Executor executor;
+    private final RetentionPolicy retentionPolicy;
+
+    private static class HostedGame {
+        private final Game game = new Game();
+        private final SerialExecutor turns;
+
+        HostedGame(Executor executor, RetentionPolicy retentionPolicy)
+        {
+            turns = new SerialExecutor(executor);
+            game.setRetentionPolicy(retentionPolicy);
+        }
+    }
+
+    public GameHost(Executor sharedExecutor)
+    {
+        this(sharedExecutor, RetentionPolicy.KEEP_EVERYTHING);
+    }
+
+    // Every game is created with the given retention policy, which keeps long-running games to a bounded size.
+    public GameHost(Executor sharedExecutor, RetentionPolicy policy)
+    {
+        executor = sharedExecutor;
+        retentionPolicy = policy;
+    }
+
+    public long createGame()
+    {
+        long id = nextId.getAndIncrement();
+        games.put(id, new HostedGame(executor, retentionPolicy));
+        return id;
+    }
+
+    public boolean removeGame(long id)
+    {
+        return games.remove(id) != null;
+    }
+
+    public int getGameCount()
+    {
+        return games.size();
+    }
+
+    // Resolves one block of orders, or of retreats if the game is waiting for them, and completes with the new state of
+    // the game. Badly formed orders fail the future with an OrderParseException, and orders the game can't carry out with
+    // an IllegalOrderException, leaving the game as it was. An unknown id fails it with an UnknownGameException.
+    public CompletableFuture<String> submit(long id, ByteBuffer ordersText)
+    {
+        return run(id, game -> {
+            OrderParser parser = new OrderParser(ordersText);
+            if (game.isRetreatNeeded())
+            {
+                ArrayList<Retreat> retreats = parser.readRetreats();
+                retreats = retreats == null ? new ArrayList<>() : retreats;
+                game.checkRetreats(retreats);
+                game.resolveRetreats(retreats);
+            }
+            else
+            {
+                ArrayList<Order> orders = parser.readOrders();
+                orders = orders == null ? new ArrayList<>() : orders;
+                game.checkOrders(orders);
+                game.resolveOrders(orders, false);
+            }
+            return describe(game);
+        });
+    }
+
+    public CompletableFuture<String> describe(long id)
+    {
+        return run(id, GameHost::describe);
+    }
+
+    private CompletableFuture<String> run(long id, Function<Game, String> task)
+    {
+        HostedGame hostedGame = games.get(id);
+        if (hostedGame == null)
+        {
+            return CompletableFuture.failedFuture(new UnknownGameException(id));
+        }
+        return CompletableFuture.supplyAsync(() -> task.apply(hostedGame.game), hostedGame.turns);
+    }
+
+    private static String describe(Game game)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, false, StandardCharsets.UTF_8);
+        game.displayText(out);
+        out.flush();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
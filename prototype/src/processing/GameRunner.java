@@ -1,53 +1,176 @@
 package processing;
 
-import javax.swing.*;
+import graphics.GameWindow;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.Scanner;
 
 public class GameRunner {
-    public static void main(String[] args)
+    public static void main(String[] args) throws IOException
     {
+        // Hand over before any Swing class gets loaded, so batch runs, hosting and simulation work on headless machines.
+        if (args.length > 0 && args[0].equals("--batch"))
+        {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--host"))
+        {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--simulate"))
+        {
+            Simulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--search"))
+        {
+            TreeSearch.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // With --save, carry on from the given file if it exists and save back to it after every resolution. The turn log
+        // since the game was started or loaded goes next to it, in <file>.log. With --retain, only keep as much of the
+        // game at hand as the given retention policy says. With --opponent, orange's orders and retreats come from a search
+        // for the given number of milliseconds instead, and only blue's are entered. With --map, a new game is played on the
+        // given map file (or grid:<width>x<height>) instead of the original board. Saved games keep their map, which --map
+        // has to match if it's given.
+        Path savePath = null;
+        MapTopology map = null;
+        RetentionPolicy retentionPolicy = RetentionPolicy.KEEP_EVERYTHING;
+        OrderPolicy opponent = null;
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            if (args[i].equals("--save"))
+            {
+                savePath = Path.of(args[i + 1]);
+            }
+            else if (args[i].equals("--retain"))
+            {
+                retentionPolicy = RetentionPolicy.parse(args[i + 1]);
+            }
+            else if (args[i].equals("--opponent"))
+            {
+                opponent = new SearchPolicy(new TreeSearch(), Long.parseLong(args[i + 1]));
+            }
+            else if (args[i].equals("--map"))
+            {
+                map = Simulator.parseMap(args[i + 1]);
+            }
+        }
+
         Scanner input = new Scanner(System.in);
+        Random random = new Random();
+        ArrayList<Army> opponentArmies = new ArrayList<>();
 
-        JFrame frame = new JFrame();
-        frame.setSize(1920, 1080);
-        frame.setTitle("5D Diplomacy With Multiverse Time Travel");
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setVisible(true);
+        GameWindow window = new GameWindow();
 
-        Game game = new Game();
+        Game game = savePath != null && Files.exists(savePath) ? GameFile.load(savePath)
+                : new Game(map == null ? MapTopology.DEFAULT : map);
+        if (map != null && !map.equals(game.getMap()))
+        {
+            System.err.println(savePath + " is a game on a different map from the one given with --map");
+            System.exit(1);
+        }
+        game.setRetentionPolicy(retentionPolicy);
         game.displayText();
-        game.displayGraphics(frame);
+        window.display(game);
 
         while (true)
         {
-            System.out.println("\nEnter orders:");
-            String order = input.nextLine();
-            ArrayList<String> orders = new ArrayList<>();
-            while (!order.equals("r"))
+            ArrayList<Order> parsedOrders = readOrders(input);
+            if (opponent != null)
             {
-                orders.add(order);
-                order = input.nextLine();
+                Simulator.collectArmies(game, Player.ORANGE, opponentArmies);
+                opponent.addOrders(game, game.getSnapshot().getTurn(), Player.ORANGE, opponentArmies, random, parsedOrders);
             }
-            ArrayList<Order> parsedOrders = game.parseOrders(orders);
             game.resolveOrders(parsedOrders, false);
+            save(game, savePath);
             game.displayText();
-            game.displayGraphics(frame);
+            window.display(game);
             if (game.isRetreatNeeded())
             {
-                System.out.println("\nEnter retreats:");
-                String retreat = input.nextLine();
-                ArrayList<String> retreats = new ArrayList<>();
-                while (!retreat.equals("r"))
+                ArrayList<Retreat> parsedRetreats = readRetreats(input);
+                if (opponent != null)
                 {
-                    retreats.add(retreat);
-                    retreat = input.nextLine();
+                    opponentArmies.clear();
+                    for (Army army : game.getRetreatingArmies())
+                    {
+                        if (army.getOwner() == Player.ORANGE)
+                        {
+                            opponentArmies.add(army);
+                        }
+                    }
+                    opponent.addRetreats(game, Player.ORANGE, opponentArmies, random, parsedRetreats);
                 }
-                ArrayList<Retreat> parsedRetreats = game.parseRetreats(retreats);
                 game.resolveRetreats(parsedRetreats);
+                save(game, savePath);
                 game.displayText();
-                game.displayGraphics(frame);
+                window.display(game);
             }
         }
     }
+
+    // Each block of lines up to `r` is parsed as a whole, so errors give the line they're on within it. A badly formed
+    // block is reported and has to be entered again.
+    private static ArrayList<Order> readOrders(Scanner input)
+    {
+        while (true)
+        {
+            System.out.println("\nEnter orders:");
+            try
+            {
+                ArrayList<Order> orders = new OrderParser(readBlock(input)).readOrders();
+                return orders == null ? new ArrayList<>() : orders;
+            }
+            catch (OrderParseException e)
+            {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    private static ArrayList<Retreat> readRetreats(Scanner input)
+    {
+        while (true)
+        {
+            System.out.println("\nEnter retreats:");
+            try
+            {
+                ArrayList<Retreat> retreats = new OrderParser(readBlock(input)).readRetreats();
+                return retreats == null ? new ArrayList<>() : retreats;
+            }
+            catch (OrderParseException e)
+            {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    private static String readBlock(Scanner input)
+    {
+        StringBuilder block = new StringBuilder();
+        String line = input.nextLine();
+        while (!line.equals("r"))
+        {
+            block.append(line).append('\n');
+            line = input.nextLine();
+        }
+        return block.toString();
+    }
+
+    private static void save(Game game, Path savePath) throws IOException
+    {
+        if (savePath != null)
+        {
+            GameFile.save(game, savePath);
+            game.getTurnLog().write(savePath.resolveSibling(savePath.getFileName() + ".log"));
+        }
+    }
 }
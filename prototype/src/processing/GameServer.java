@@ -0,0 +1,146 @@
+package processing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+// Serves a GameHost over HTTP on the loopback interface:
+//   POST   /games              creates a game and responds with its id
+//   GET    /games/<id>         describes the game, as the batch runner would
+//   POST   /games/<id>/orders  resolves the orders (or retreats) in the body, in the usual text format
+//   DELETE /games/<id>         removes the game
+// Request threads only hand work over to the host and respond once it's done, so they never wait on adjudication.
+public class GameServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int METRICS_SAMPLE_INTERVAL = 100;
+
+    private final GameHost host;
+    private final HttpServer server;
+
+    public GameServer(GameHost gameHost, int port) throws IOException
+    {
+        host = gameHost;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/games", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        RetentionPolicy retentionPolicy = args.length > 1 ? RetentionPolicy.parse(args[1]) : RetentionPolicy.KEEP_EVERYTHING;
+        ResolutionStats.register(METRICS_SAMPLE_INTERVAL);
+        ForkJoinPool adjudicators = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        GameServer gameServer = new GameServer(new GameHost(adjudicators, retentionPolicy), port);
+        gameServer.start(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+        System.out.println("Hosting games on http://localhost:" + gameServer.getPort() + "/games");
+    }
+
+    public void start(ExecutorService requestExecutor)
+    {
+        server.setExecutor(requestExecutor);
+        server.start();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+    }
+
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        // The path splits into "", "games", then the id and action if there are any.
+        if (path.length == 2 && method.equals("POST"))
+        {
+            respond(exchange, 201, host.createGame() + "\n");
+            return;
+        }
+
+        long id;
+        try
+        {
+            id = path.length > 2 ? Long.parseLong(path[2]) : -1;
+        }
+        catch (NumberFormatException e)
+        {
+            id = -1;
+        }
+
+        if (id >= 0 && path.length == 3 && method.equals("GET"))
+        {
+            respondWhenDone(exchange, host.describe(id));
+        }
+        else if (id >= 0 && path.length == 3 && method.equals("DELETE"))
+        {
+            respond(exchange, host.removeGame(id) ? 204 : 404, "");
+        }
+        else if (id >= 0 && path.length == 4 && path[3].equals("orders") && method.equals("POST"))
+        {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            respondWhenDone(exchange, host.submit(id, ByteBuffer.wrap(body)));
+        }
+        else
+        {
+            respond(exchange, 404, "Unknown request " + method + " " + exchange.getRequestURI() + "\n");
+        }
+    }
+
+    private static void respondWhenDone(HttpExchange exchange, CompletableFuture<String> result)
+    {
+        result.whenComplete((text, failure) -> {
+            try
+            {
+                if (failure == null)
+                {
+                    respond(exchange, 200, text);
+                    return;
+                }
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                if (cause instanceof UnknownGameException)
+                {
+                    respond(exchange, 404, cause.getMessage() + "\n");
+                }
+                else if (cause instanceof OrderParseException || cause instanceof IllegalOrderException)
+                {
+                    respond(exchange, 400, cause.getMessage() + "\n");
+                }
+                else
+                {
+                    respond(exchange, 500, "Failed: " + cause + "\n");
+                }
+            }
+            catch (IOException e)
+            {
+                exchange.close();
+            }
+        });
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream body = exchange.getResponseBody())
+        {
+            body.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// An immutable view of a game after some turn. Each snapshot is built from the previous one by replacing only the boards
+// that changed, so keeping every turn's snapshot costs memory in proportion to what changed rather than to board count.
+public final class GameSnapshot {
+    private final int turn;
+    private final PersistentLongMap<BoardSnapshot> boards;
+    // Boards a retention policy has moved out of the game's working set. They're still part of the game.
+    private final PersistentLongMap<ArchivedBoard> archivedBoards;
+    private final List<Army> retreatingArmies;
+    // The sum of every board's hash, archived or not, which only needs the changed boards' hashes swapping in from one
+    // turn to the next.
+    private final long boardHashes;
+    private final int boardsCreated;
+    private final long positionHash;
+    private final MapTopology map;
+
+    GameSnapshot(int turnNumber, PersistentLongMap<BoardSnapshot> boardSnapshots, PersistentLongMap<ArchivedBoard> archive,
+                 List<Army> retreats, long boardHashSum, int createdBoardCount, long zobristHash, MapTopology gameMap)
+    {
+        turn = turnNumber;
+        boards = boardSnapshots;
+        archivedBoards = archive;
+        retreatingArmies = Collections.unmodifiableList(new ArrayList<>(retreats));
+        boardHashes = boardHashSum;
+        boardsCreated = createdBoardCount;
+        positionHash = zobristHash;
+        map = gameMap;
+    }
+
+    public int getTurn()
+    {
+        return turn;
+    }
+
+    public MapTopology getMap()
+    {
+        return map;
+    }
+
+    // Boards in the working set, which doesn't include archived ones.
+    public int getBoardCount()
+    {
+        return boards.size();
+    }
+
+    public int getArchivedBoardCount()
+    {
+        return archivedBoards.size();
+    }
+
+    public BoardSnapshot getBoard(int x, int y)
+    {
+        return boards.get(Coordinates.packBoard(x, y));
+    }
+
+    BoardSnapshot getBoard(long boardKey)
+    {
+        return boards.get(boardKey);
+    }
+
+    PersistentLongMap<BoardSnapshot> getBoardMap()
+    {
+        return boards;
+    }
+
+    // Boards in the working set in creation order.
+    public List<BoardSnapshot> getBoards()
+    {
+        ArrayList<BoardSnapshot> boardList = new ArrayList<>(boards.size());
+        boards.forEachValue(boardList::add);
+        boardList.sort(Comparator.comparingInt(BoardSnapshot::getCreationIndex));
+        return boardList;
+    }
+
+    // Every board in creation order, with archived ones brought back as they were, for saving and logging the whole game.
+    List<BoardSnapshot> getAllBoards()
+    {
+        if (archivedBoards.size() == 0)
+        {
+            return getBoards();
+        }
+        ArrayList<BoardSnapshot> boardList = new ArrayList<>(boards.size() + archivedBoards.size());
+        boards.forEachValue(boardList::add);
+        archivedBoards.forEachValue(board -> boardList.add(board.toSnapshot()));
+        boardList.sort(Comparator.comparingInt(BoardSnapshot::getCreationIndex));
+        return boardList;
+    }
+
+    PersistentLongMap<ArchivedBoard> getArchivedBoardMap()
+    {
+        return archivedBoards;
+    }
+
+    public List<Army> getRetreatingArmies()
+    {
+        return retreatingArmies;
+    }
+
+    long getBoardHashes()
+    {
+        return boardHashes;
+    }
+
+    int getBoardsCreated()
+    {
+        return boardsCreated;
+    }
+
+    // The game's position hash at the time, which unlike the checksum leaves out the turn and how boards were numbered,
+    // so snapshots of the same position from different turns or games can be told apart from the rest without walking them.
+    public long getPositionHash()
+    {
+        return positionHash;
+    }
+
+    // A 64-bit hash of the whole state: the turn, every board and the armies on it, and the retreats. Two snapshots with
+    // the same checksum are the same game, barring a hash collision.
+    public long getChecksum()
+    {
+        long checksum = Hashing.combine(Hashing.mix(turn), boardHashes);
+        for (Army army : retreatingArmies)
+        {
+            checksum = Hashing.combine(checksum, army.getLocationKey() * Player.values().length + army.getOwner().ordinal());
+        }
+        return checksum;
+    }
+}
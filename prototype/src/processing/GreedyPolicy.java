@@ -0,0 +1,147 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Gives each army the move that looks best on its own, judging only by what's at each destination: an empty province on
+// an inactive board starts a new timeline, an enemy army can be attacked, and an empty province on an active board is
+// at least somewhere new, while a move onto a friendly army or into an occupied province of an inactive board is bound to
+// fail. Armies with nothing better to do support one of the player's attacks within reach, or else hold. Retreats go to
+// an empty province on an active board if there's one in reach, and disband otherwise.
+public class GreedyPolicy implements OrderPolicy {
+    private static final int BRANCH = 3;
+    private static final int ATTACK = 2;
+    private static final int ADVANCE = 1;
+    private static final int STAY = 0;
+    private static final int BOUNCE = -1;
+
+    @Override
+    public void addOrders(Game game, int turn, Player player, List<Army> armies, Random random, ArrayList<Order> orders)
+    {
+        MoveChooser chooser = new MoveChooser(game, player, random);
+        ArrayList<Army> idleArmies = new ArrayList<>();
+        ArrayList<Move> attacks = new ArrayList<>();
+        for (Army army : armies)
+        {
+            chooser.bestScore = STAY;
+            chooser.ties = 0;
+            LegalOrders.forMoves(game, army.getLocationKey(), chooser);
+            if (chooser.bestScore > STAY)
+            {
+                Move move = RandomPolicy.move(army, chooser.bestDestination);
+                orders.add(move);
+                if (chooser.bestScore == ATTACK)
+                {
+                    attacks.add(move);
+                }
+            }
+            else
+            {
+                idleArmies.add(army);
+            }
+        }
+
+        for (Army army : idleArmies)
+        {
+            Move attack = supportableAttack(army, attacks);
+            orders.add(attack == null ? RandomPolicy.hold(army)
+                    : RandomPolicy.support(army, attack.getLocationKey(), attack.getDestinationKey()));
+        }
+    }
+
+    @Override
+    public void addRetreats(Game game, Player player, List<Army> retreatingArmies, Random random, ArrayList<Retreat> retreats)
+    {
+        ArmyStore store = game.getArmyStore();
+        MapTopology map = game.getMap();
+        for (Army army : retreatingArmies)
+        {
+            int reachEnd = map.getReachStart(army.getZ() + 1);
+            long destination = -1;
+            int choices = 0;
+            for (int dy = -1; dy <= 1; dy++)
+            {
+                for (int dx = -1; dx <= 1; dx++)
+                {
+                    Board board = game.getBoard(army.getX() + dx, army.getY() + dy);
+                    if (board == null || !board.isActive())
+                    {
+                        continue;
+                    }
+                    for (int i = map.getReachStart(army.getZ()); i < reachEnd; i++)
+                    {
+                        long location = Coordinates.pack(board.getX(), board.getY(), map.getReach(i));
+                        if (store.getOwnerAt(location) == null && random.nextInt(++choices) == 0)
+                        {
+                            destination = location;
+                        }
+                    }
+                }
+            }
+            retreats.add(choices == 0 ? RandomPolicy.disband(army) : RandomPolicy.retreat(army, destination));
+        }
+    }
+
+    // Keeps the best scoring of a unit's legal moves, picking evenly between equally good ones.
+    private static class MoveChooser implements OrderVisitor {
+        private final Game game;
+        private final Player player;
+        private final Random random;
+        private int bestScore;
+        private long bestDestination;
+        private int ties;
+
+        MoveChooser(Game currentGame, Player currentPlayer, Random currentRandom)
+        {
+            game = currentGame;
+            player = currentPlayer;
+            random = currentRandom;
+        }
+
+        @Override
+        public void move(long location, long destination)
+        {
+            int score = score(destination);
+            if (score > bestScore)
+            {
+                bestScore = score;
+                bestDestination = destination;
+                ties = 1;
+            }
+            else if (score == bestScore && score > STAY && random.nextInt(++ties) == 0)
+            {
+                bestDestination = destination;
+            }
+        }
+
+        // Archived boards aren't in the working set, but they're inactive like any other board left behind.
+        private int score(long destination)
+        {
+            Board board = game.getBoard(Coordinates.x(destination), Coordinates.y(destination));
+            Player occupant = game.getArmyStore().getOwnerAt(destination);
+            if (board == null || !board.isActive())
+            {
+                return occupant == null ? BRANCH : BOUNCE;
+            }
+            if (occupant == null)
+            {
+                return ADVANCE;
+            }
+            return occupant == player ? BOUNCE : ATTACK;
+        }
+    }
+
+    // The first attack whose destination the army can reach, if any.
+    private static Move supportableAttack(Army army, List<Move> attacks)
+    {
+        for (Move attack : attacks)
+        {
+            if (Math.abs(attack.getDestinationX() - army.getX()) <= 1 && Math.abs(attack.getDestinationY() - army.getY()) <= 1)
+            {
+                return attack;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package processing;
+
+final class Hashing {
+    private Hashing()
+    {
+    }
+
+    // The finalizer from SplitMix64, which is a bijection on longs and spreads nearby values across all 64 bits.
+    static long mix(long value)
+    {
+        long hash = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    // Folds the next value into a running hash, so the result depends on the order values come in.
+    static long combine(long hash, long value)
+    {
+        return mix(hash * 31 + value);
+    }
+}
@@ -0,0 +1,11 @@
+package processing;
+
+// Thrown for orders or retreats that are well formed but can't be carried out in the game they're given to.
+public class IllegalOrderException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public IllegalOrderException(String problem)
+    {
+        super(problem);
+    }
+}
@@ -0,0 +1,77 @@
+package processing;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Where resolutions report their metrics. Nothing is installed by default, in which case a resolution only does the one
+// volatile read to find that out: metrics aren't published and allocations aren't measured.
+public final class Instrumentation {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private static volatile MetricsSink sink;
+    private static volatile int allocationSampleInterval;
+
+    private Instrumentation()
+    {
+    }
+
+    // Sends every resolution's metrics to the sink, and measures allocation in roughly one resolution out of every
+    // allocationSampleInterval (0 never measures it).
+    public static void install(MetricsSink metricsSink, int sampleInterval)
+    {
+        allocationSampleInterval = sampleInterval;
+        sink = metricsSink;
+    }
+
+    public static void uninstall()
+    {
+        sink = null;
+    }
+
+    public static MetricsSink getSink()
+    {
+        return sink;
+    }
+
+    // The bytes the current thread has allocated so far, for a resolution that's already being sampled, or -1 if that
+    // can't be measured.
+    static long threadAllocatedBytes()
+    {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // Returns the bytes the current thread has allocated so far if this resolution is sampled, or -1 if not.
+    static long startAllocationSample()
+    {
+        int interval = allocationSampleInterval;
+        if (THREADS == null || interval <= 0 || ThreadLocalRandom.current().nextInt(interval) != 0)
+        {
+            return -1;
+        }
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // Adds what the current thread has allocated to anything other threads have already added, e.g. while adjudicating
+    // groups in parallel.
+    static void finish(MetricsSink metricsSink, ResolutionMetrics metrics, long allocatedAtStart)
+    {
+        if (allocatedAtStart >= 0)
+        {
+            metrics.addAllocatedBytes(THREADS.getCurrentThreadAllocatedBytes() - allocatedAtStart);
+        }
+        metricsSink.record(metrics);
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean()
+    {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+            {
+                return threads;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,223 @@
+package processing;
+
+import java.util.List;
+
+// Lists every legal order for a unit, or for all of a player's units, and checks single orders against the same rules:
+//   - a unit is the first army in a province of the game's map on an active board, and can always hold
+//   - it can move to any province bordering its own on its own board, or to its own province or any bordering it on a
+//     board one step away, as long as there's a board there
+//   - it can support another unit to hold if it could move to that unit's location, or to move anywhere both of them
+//     could move to
+// Resolution itself only drops orders from inactive boards and moves out of reach, so these are stricter. Reach comes
+// from the map's adjacency rows, boards from the game's board index and units from its army store, so listing orders
+// doesn't allocate anything.
+public final class LegalOrders {
+    // Every board within two steps, which is as far away as a unit that can be supported can be.
+    private static final int[] SUPPORT_DX = new int[25];
+    private static final int[] SUPPORT_DY = new int[25];
+
+    static
+    {
+        int board = 0;
+        for (int dy = -2; dy <= 2; dy++)
+        {
+            for (int dx = -2; dx <= 2; dx++)
+            {
+                SUPPORT_DX[board] = dx;
+                SUPPORT_DY[board] = dy;
+                board++;
+            }
+        }
+    }
+
+    private LegalOrders()
+    {
+    }
+
+    // Visits every legal order for the unit at the location: its hold, then its moves, then its supports. Visits nothing
+    // if there's no unit there.
+    public static void forUnit(Game game, long location, OrderVisitor visitor)
+    {
+        if (isUnit(game, location))
+        {
+            visitUnit(game, location, visitor);
+        }
+    }
+
+    // Visits just the hold and the moves of the unit at the location, for when supports aren't wanted.
+    public static void forMoves(Game game, long location, OrderVisitor visitor)
+    {
+        if (isUnit(game, location))
+        {
+            visitor.hold(location);
+            visitMoves(game, location, boardsInReach(game, location), visitor);
+        }
+    }
+
+    // Visits every legal order for each of the player's units in turn, going through the active boards row by row.
+    public static void forPlayer(Game game, Player player, OrderVisitor visitor)
+    {
+        ArmyStore armies = game.getArmyStore();
+        int provinces = game.getMap().getProvinceCount();
+        List<Board> activeBoards = game.getActiveBoards();
+        for (int i = 0; i < activeBoards.size(); i++)
+        {
+            Board board = activeBoards.get(i);
+            for (int z = 0; z < provinces; z++)
+            {
+                long location = Coordinates.pack(board.getX(), board.getY(), z);
+                if (armies.getOwnerAt(location) == player)
+                {
+                    visitUnit(game, location, visitor);
+                }
+            }
+        }
+    }
+
+    public static boolean isLegal(Game game, Order order)
+    {
+        long location = order.getLocationKey();
+        if (!isUnit(game, location))
+        {
+            return false;
+        }
+        if (order instanceof Move)
+        {
+            return canMove(game, location, ((Move) order).getDestinationKey());
+        }
+        if (order instanceof Support)
+        {
+            Support support = (Support) order;
+            long supported = support.getSupportLocationKey();
+            long destination = support.getSupportDestinationKey();
+            if (supported == location || !isUnit(game, supported))
+            {
+                return false;
+            }
+            return destination == supported ? canMove(game, location, supported)
+                    : canMove(game, location, destination) && canMove(game, supported, destination);
+        }
+        return order instanceof Hold;
+    }
+
+    private static void visitUnit(Game game, long location, OrderVisitor visitor)
+    {
+        int boardsInReach = boardsInReach(game, location);
+        visitor.hold(location);
+        visitMoves(game, location, boardsInReach, visitor);
+        visitSupports(game, location, boardsInReach, visitor);
+    }
+
+    // Which of the nine boards in reach of the location exist, as a bit for each.
+    private static int boardsInReach(Game game, long location)
+    {
+        int x = Coordinates.x(location);
+        int y = Coordinates.y(location);
+        int boardsInReach = 0;
+        for (int dy = -1; dy <= 1; dy++)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                if (game.hasBoard(x + dx, y + dy))
+                {
+                    boardsInReach |= 1 << ((dy + 1) * 3 + dx + 1);
+                }
+            }
+        }
+        return boardsInReach;
+    }
+
+    private static void visitMoves(Game game, long location, int boardsInReach, OrderVisitor visitor)
+    {
+        MapTopology map = game.getMap();
+        int x = Coordinates.x(location);
+        int y = Coordinates.y(location);
+        int z = Coordinates.z(location);
+        int reachEnd = map.getReachStart(z + 1);
+        for (int board = 0; board < 9; board++)
+        {
+            if ((boardsInReach & 1 << board) == 0)
+            {
+                continue;
+            }
+            int toX = x + board % 3 - 1;
+            int toY = y + board / 3 - 1;
+            for (int i = map.getReachStart(z); i < reachEnd; i++)
+            {
+                long destination = Coordinates.pack(toX, toY, map.getReach(i));
+                if (destination != location)
+                {
+                    visitor.move(location, destination);
+                }
+            }
+        }
+    }
+
+    private static void visitSupports(Game game, long location, int boardsInReach, OrderVisitor visitor)
+    {
+        MapTopology map = game.getMap();
+        int x = Coordinates.x(location);
+        int y = Coordinates.y(location);
+        int z = Coordinates.z(location);
+        int provinces = map.getProvinceCount();
+        int reachEnd = map.getReachStart(z + 1);
+        ArmyStore armies = game.getArmyStore();
+        for (int i = 0; i < SUPPORT_DX.length; i++)
+        {
+            int supportedX = x + SUPPORT_DX[i];
+            int supportedY = y + SUPPORT_DY[i];
+            Board board = game.getBoard(supportedX, supportedY);
+            if (board == null || !board.isActive())
+            {
+                continue;
+            }
+            for (int supportedZ = 0; supportedZ < provinces; supportedZ++)
+            {
+                long supported = Coordinates.pack(supportedX, supportedY, supportedZ);
+                if (supported == location || armies.getOwnerAt(supported) == null)
+                {
+                    continue;
+                }
+                if (Math.abs(SUPPORT_DX[i]) <= 1 && Math.abs(SUPPORT_DY[i]) <= 1 && map.canReach(z, supportedZ))
+                {
+                    visitor.support(location, supported, supported);
+                }
+                for (int reachBoard = 0; reachBoard < 9; reachBoard++)
+                {
+                    int toX = x + reachBoard % 3 - 1;
+                    int toY = y + reachBoard / 3 - 1;
+                    if ((boardsInReach & 1 << reachBoard) == 0
+                            || Math.abs(toX - supportedX) > 1 || Math.abs(toY - supportedY) > 1)
+                    {
+                        continue;
+                    }
+                    for (int j = map.getReachStart(z); j < reachEnd; j++)
+                    {
+                        int toZ = map.getReach(j);
+                        long destination = Coordinates.pack(toX, toY, toZ);
+                        if (destination != location && destination != supported && map.canReach(supportedZ, toZ))
+                        {
+                            visitor.support(location, supported, destination);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isUnit(Game game, long location)
+    {
+        Board board = game.getBoard(Coordinates.x(location), Coordinates.y(location));
+        return game.getMap().isProvince(Coordinates.z(location)) && board != null && board.isActive()
+                && game.getArmyStore().getOwnerAt(location) != null;
+    }
+
+    private static boolean canMove(Game game, long location, long destination)
+    {
+        int x = Coordinates.x(destination);
+        int y = Coordinates.y(destination);
+        return destination != location && game.getMap().canReach(Coordinates.z(location), Coordinates.z(destination))
+                && Math.abs(x - Coordinates.x(location)) <= 1 && Math.abs(y - Coordinates.y(location)) <= 1
+                && game.hasBoard(x, y);
+    }
+}
@@ -0,0 +1,122 @@
+package processing;
+
+import java.util.Arrays;
+
+// A mutable hash map keyed by long, with open addressing and linear probing, so looking a key up never boxes it or
+// allocates anything. Keys are scrambled with the same mix as everywhere else, which matters for packed coordinates:
+// their low bits hardly vary between neighbouring boards. The table is kept at most half full.
+public final class LongHashMap<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongHashMap()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    public LongHashMap(int expectedSize)
+    {
+        allocate(Integer.highestOneBit(Math.max(expectedSize, INITIAL_CAPACITY / 2) * 2 - 1) * 2);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        return (V) values[findSlot(key)];
+    }
+
+    public boolean containsKey(long key)
+    {
+        return values[findSlot(key)] != null;
+    }
+
+    // Values can't be null, as a null value marks an empty slot.
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        int slot = findSlot(key);
+        V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null && ++size * 2 > keys.length)
+        {
+            grow();
+        }
+        return previous;
+    }
+
+    // Shifts back any later entries in the same run that would otherwise no longer be found past the gap.
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        int slot = findSlot(key);
+        V previous = (V) values[slot];
+        if (previous == null)
+        {
+            return null;
+        }
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask)
+        {
+            int home = (int) Hashing.mix(keys[next]) & mask;
+            // Move the entry into the gap unless its home slot lies cyclically after the gap, up to where it is now.
+            if (((next - home) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = null;
+        size--;
+        return previous;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int findSlot(long key)
+    {
+        int mask = keys.length - 1;
+        int slot = (int) Hashing.mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int slots)
+    {
+        keys = new long[slots];
+        values = new Object[slots];
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++)
+        {
+            if (oldValues[oldSlot] != null)
+            {
+                int slot = findSlot(oldKeys[oldSlot]);
+                keys[slot] = oldKeys[oldSlot];
+                values[slot] = oldValues[oldSlot];
+            }
+        }
+    }
+}
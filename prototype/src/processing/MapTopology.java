@@ -0,0 +1,458 @@
+package processing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+// The provinces of a board and which of them border each other, the same on every board. A province is numbered by z.
+// A unit can move to any province bordering its own on its own board, and to its own province or any bordering it on a
+// board one step away. Adjacency is kept in compressed sparse rows: the provinces bordering province z are
+// adjacent[adjacencyStart[z]] up to adjacent[adjacencyStart[z + 1]], in order. Each province's reach (itself and the
+// provinces bordering it) is kept the same way, so listing where a unit can go is a walk along one row.
+//
+// Maps are read from text, one statement per line, with # starting a comment:
+//   province <name> <x> <y>     the next province, drawn at (x, y) from the centre of the board, in board widths
+//   adjacent <name> <name>...   the first province borders each of the others, and they border it
+//   start <player> <name>       an army for the player in the province on the first board
+// Provinces are numbered in the order they're declared.
+//
+// Game files and turn logs carry their map in binary: the province count (int), then each province's name (UTF-8 byte
+// count as a short, then the bytes) and position (two doubles), the adjacency rows as their starts (one int per province
+// plus one) followed by the provinces in them (ints), and finally the number of starting armies (int) with each one's
+// owner ordinal (byte) and province (int). Maps are compared by content, so a map read back is equal to the one written.
+public final class MapTopology {
+    private static final double ROOT_3 = Math.sqrt(3);
+
+    // The original board: three provinces, all bordering each other, with blue starting in the left one and orange in
+    // the right.
+    public static final MapTopology DEFAULT = new MapTopology(
+            new String[] { "blue", "neutral", "orange" },
+            new double[] { -0.25, 0, 0.25 },
+            new double[] { ROOT_3 / 12, -ROOT_3 / 6, ROOT_3 / 12 },
+            new int[][] { { 1, 2 }, { 0, 2 }, { 0, 1 } },
+            new Player[] { Player.BLUE, Player.ORANGE },
+            new int[] { 0, 2 });
+
+    private final String[] names;
+    private final double[] positionX;
+    private final double[] positionY;
+    private final int[] adjacencyStart;
+    private final int[] adjacent;
+    private final int[] reachStart;
+    private final int[] reach;
+    private final Player[] startOwners;
+    private final int[] startProvinces;
+
+    private MapTopology(String[] provinceNames, double[] xs, double[] ys, int[][] neighbours, Player[] owners, int[] starts)
+    {
+        names = provinceNames;
+        positionX = xs;
+        positionY = ys;
+        startOwners = owners;
+        startProvinces = starts;
+        int provinces = provinceNames.length;
+        adjacencyStart = new int[provinces + 1];
+        reachStart = new int[provinces + 1];
+        for (int z = 0; z < provinces; z++)
+        {
+            adjacencyStart[z + 1] = adjacencyStart[z] + neighbours[z].length;
+            reachStart[z + 1] = reachStart[z] + neighbours[z].length + 1;
+        }
+        adjacent = new int[adjacencyStart[provinces]];
+        reach = new int[reachStart[provinces]];
+        for (int z = 0; z < provinces; z++)
+        {
+            int[] sorted = neighbours[z].clone();
+            Arrays.sort(sorted);
+            System.arraycopy(sorted, 0, adjacent, adjacencyStart[z], sorted.length);
+            // The province itself goes in its place among its neighbours.
+            int position = reachStart[z];
+            boolean added = false;
+            for (int neighbour : sorted)
+            {
+                if (!added && z < neighbour)
+                {
+                    reach[position++] = z;
+                    added = true;
+                }
+                reach[position++] = neighbour;
+            }
+            if (!added)
+            {
+                reach[position] = z;
+            }
+        }
+    }
+
+    // Where the neighbours come from adjacency rows in the same form as this map keeps, e.g. ones read back from a file.
+    private static MapTopology fromRows(String[] provinceNames, double[] xs, double[] ys, int[] rowStarts, int[] rows,
+                                        Player[] owners, int[] starts)
+    {
+        int provinces = provinceNames.length;
+        int[][] neighbours = new int[provinces][];
+        for (int z = 0; z < provinces; z++)
+        {
+            neighbours[z] = Arrays.copyOfRange(rows, rowStarts[z], rowStarts[z + 1]);
+        }
+        return new MapTopology(provinceNames, xs, ys, neighbours, owners, starts);
+    }
+
+    public static MapTopology load(Path path) throws IOException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+        {
+            return read(reader);
+        }
+    }
+
+    public static MapTopology read(Reader input) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(input);
+        ArrayList<String> provinceNames = new ArrayList<>();
+        HashMap<String, Integer> provinces = new HashMap<>();
+        ArrayList<Double> xs = new ArrayList<>();
+        ArrayList<Double> ys = new ArrayList<>();
+        ArrayList<TreeSet<Integer>> neighbours = new ArrayList<>();
+        ArrayList<Player> owners = new ArrayList<>();
+        ArrayList<Integer> starts = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine())
+        {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String[] words = (comment < 0 ? line : line.substring(0, comment)).trim().split("\\s+");
+            if (words[0].isEmpty())
+            {
+                continue;
+            }
+            try
+            {
+                switch (words[0])
+                {
+                    case "province":
+                        expectWords(words, 4, 4);
+                        if (provinces.putIfAbsent(words[1], provinceNames.size()) != null)
+                        {
+                            throw new IllegalArgumentException("province " + words[1] + " is already declared");
+                        }
+                        provinceNames.add(words[1]);
+                        xs.add(Double.parseDouble(words[2]));
+                        ys.add(Double.parseDouble(words[3]));
+                        neighbours.add(new TreeSet<>());
+                        break;
+                    case "adjacent":
+                        expectWords(words, 3, Integer.MAX_VALUE);
+                        int from = province(provinces, words[1]);
+                        for (int i = 2; i < words.length; i++)
+                        {
+                            int to = province(provinces, words[i]);
+                            if (to == from)
+                            {
+                                throw new IllegalArgumentException("province " + words[i] + " can't border itself");
+                            }
+                            neighbours.get(from).add(to);
+                            neighbours.get(to).add(from);
+                        }
+                        break;
+                    case "start":
+                        expectWords(words, 3, 3);
+                        owners.add(Player.valueOf(words[1].toUpperCase()));
+                        starts.add(province(provinces, words[2]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("expected province, adjacent or start but got " + words[0]);
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException("Map line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        if (provinceNames.isEmpty())
+        {
+            throw new IllegalArgumentException("Map has no provinces");
+        }
+
+        int provinceCount = provinceNames.size();
+        double[] xArray = new double[provinceCount];
+        double[] yArray = new double[provinceCount];
+        int[][] neighbourArrays = new int[provinceCount][];
+        for (int z = 0; z < provinceCount; z++)
+        {
+            xArray[z] = xs.get(z);
+            yArray[z] = ys.get(z);
+            neighbourArrays[z] = neighbours.get(z).stream().mapToInt(Integer::intValue).toArray();
+        }
+        MapTopology map = new MapTopology(provinceNames.toArray(new String[0]), xArray, yArray, neighbourArrays,
+                owners.toArray(new Player[0]), starts.stream().mapToInt(Integer::intValue).toArray());
+        return map.equals(DEFAULT) ? DEFAULT : map;
+    }
+
+    // A map of width by height square provinces, each bordering the ones above, below and to either side, with blue
+    // starting in the top left corner and orange in the bottom right. For trying out bigger boards.
+    public static MapTopology grid(int width, int height)
+    {
+        int provinces = width * height;
+        String[] provinceNames = new String[provinces];
+        double[] xs = new double[provinces];
+        double[] ys = new double[provinces];
+        int[][] neighbours = new int[provinces][];
+        for (int row = 0; row < height; row++)
+        {
+            for (int column = 0; column < width; column++)
+            {
+                int z = row * width + column;
+                provinceNames[z] = "r" + row + "c" + column;
+                xs[z] = (column + 0.5) / width - 0.5;
+                // Boards are drawn as triangles, so fill the box around one.
+                ys[z] = (row + 0.5) / height * ROOT_3 / 2 - ROOT_3 / 3;
+                int[] around = new int[4];
+                int count = 0;
+                if (row > 0)
+                {
+                    around[count++] = z - width;
+                }
+                if (column > 0)
+                {
+                    around[count++] = z - 1;
+                }
+                if (column + 1 < width)
+                {
+                    around[count++] = z + 1;
+                }
+                if (row + 1 < height)
+                {
+                    around[count++] = z + width;
+                }
+                neighbours[z] = Arrays.copyOf(around, count);
+            }
+        }
+        return new MapTopology(provinceNames, xs, ys, neighbours, new Player[] { Player.BLUE, Player.ORANGE },
+                new int[] { 0, provinces - 1 });
+    }
+
+    public int getEncodedSize()
+    {
+        int bytes = 4;
+        for (String name : names)
+        {
+            bytes += 2 + name.getBytes(StandardCharsets.UTF_8).length + 8 + 8;
+        }
+        return bytes + 4 * adjacencyStart.length + 4 * adjacent.length + 4 + startProvinces.length * (1 + 4);
+    }
+
+    public void encode(ByteBuffer buffer)
+    {
+        buffer.putInt(names.length);
+        for (int z = 0; z < names.length; z++)
+        {
+            byte[] name = names[z].getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+            buffer.putDouble(positionX[z]);
+            buffer.putDouble(positionY[z]);
+        }
+        for (int start : adjacencyStart)
+        {
+            buffer.putInt(start);
+        }
+        for (int province : adjacent)
+        {
+            buffer.putInt(province);
+        }
+        buffer.putInt(startProvinces.length);
+        for (int i = 0; i < startProvinces.length; i++)
+        {
+            buffer.put((byte) startOwners[i].ordinal());
+            buffer.putInt(startProvinces[i]);
+        }
+    }
+
+    // Reads a map written by encode, giving back DEFAULT itself for the original board. Anything out of range is an
+    // IllegalArgumentException, and running out of bytes a BufferUnderflowException.
+    public static MapTopology decode(ByteBuffer buffer)
+    {
+        int provinces = buffer.getInt();
+        if (provinces < 1 || provinces > buffer.remaining())
+        {
+            throw new IllegalArgumentException("Map has " + provinces + " provinces");
+        }
+        String[] provinceNames = new String[provinces];
+        double[] xs = new double[provinces];
+        double[] ys = new double[provinces];
+        for (int z = 0; z < provinces; z++)
+        {
+            byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(name);
+            provinceNames[z] = new String(name, StandardCharsets.UTF_8);
+            xs[z] = buffer.getDouble();
+            ys[z] = buffer.getDouble();
+        }
+        int[] rowStarts = new int[provinces + 1];
+        for (int z = 0; z <= provinces; z++)
+        {
+            rowStarts[z] = buffer.getInt();
+            if (z > 0 ? rowStarts[z] < rowStarts[z - 1] || rowStarts[z] - rowStarts[z - 1] >= provinces : rowStarts[z] != 0)
+            {
+                throw new IllegalArgumentException("Map adjacency row " + z + " starts at " + rowStarts[z]);
+            }
+        }
+        int[] rows = new int[rowStarts[provinces]];
+        for (int i = 0; i < rows.length; i++)
+        {
+            rows[i] = buffer.getInt();
+            if (rows[i] < 0 || rows[i] >= provinces)
+            {
+                throw new IllegalArgumentException("Map adjacency refers to province " + rows[i]);
+            }
+        }
+        int startCount = buffer.getInt();
+        if (startCount < 0 || startCount > buffer.remaining())
+        {
+            throw new IllegalArgumentException("Map has " + startCount + " starting armies");
+        }
+        Player[] owners = new Player[startCount];
+        int[] starts = new int[startCount];
+        for (int i = 0; i < startCount; i++)
+        {
+            owners[i] = Player.values()[buffer.get()];
+            starts[i] = buffer.getInt();
+            if (starts[i] < 0 || starts[i] >= provinces)
+            {
+                throw new IllegalArgumentException("Map starts an army in province " + starts[i]);
+            }
+        }
+        MapTopology map = fromRows(provinceNames, xs, ys, rowStarts, rows, owners, starts);
+        return map.equals(DEFAULT) ? DEFAULT : map;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+        if (!(other instanceof MapTopology))
+        {
+            return false;
+        }
+        MapTopology map = (MapTopology) other;
+        return Arrays.equals(names, map.names) && Arrays.equals(positionX, map.positionX)
+                && Arrays.equals(positionY, map.positionY) && Arrays.equals(adjacencyStart, map.adjacencyStart)
+                && Arrays.equals(adjacent, map.adjacent) && Arrays.equals(startOwners, map.startOwners)
+                && Arrays.equals(startProvinces, map.startProvinces);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode(names) + Arrays.hashCode(adjacent);
+    }
+
+    public int getProvinceCount()
+    {
+        return names.length;
+    }
+
+    public boolean isProvince(int z)
+    {
+        return z >= 0 && z < names.length;
+    }
+
+    public String getName(int z)
+    {
+        return names[z];
+    }
+
+    // Where the province is drawn, from the centre of the board, in board widths.
+    public double getX(int z)
+    {
+        return positionX[z];
+    }
+
+    public double getY(int z)
+    {
+        return positionY[z];
+    }
+
+    public boolean isAdjacent(int from, int to)
+    {
+        for (int i = adjacencyStart[from]; i < adjacencyStart[from + 1]; i++)
+        {
+            if (adjacent[i] == to)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether a unit in one province can reach the other on a board one step away: the same province, or one bordering
+    // it. Either may be outside the map.
+    public boolean canReach(int from, int to)
+    {
+        return isProvince(from) && isProvince(to) && (from == to || isAdjacent(from, to));
+    }
+
+    // The provinces bordering province z are getAdjacent(i) for i from getAdjacencyStart(z) up to getAdjacencyStart(z + 1).
+    public int getAdjacencyStart(int z)
+    {
+        return adjacencyStart[z];
+    }
+
+    public int getAdjacent(int index)
+    {
+        return adjacent[index];
+    }
+
+    // Province z and the provinces bordering it, in order, are getReach(i) for i from getReachStart(z) up to
+    // getReachStart(z + 1).
+    public int getReachStart(int z)
+    {
+        return reachStart[z];
+    }
+
+    public int getReach(int index)
+    {
+        return reach[index];
+    }
+
+    // The armies each player starts with, all on the first board.
+    public ArrayList<Army> getStartingArmies()
+    {
+        ArrayList<Army> armies = new ArrayList<>(startProvinces.length);
+        for (int i = 0; i < startProvinces.length; i++)
+        {
+            armies.add(new Army(0, 0, startProvinces[i], startOwners[i]));
+        }
+        return armies;
+    }
+
+    private static int province(HashMap<String, Integer> provinces, String name)
+    {
+        Integer z = provinces.get(name);
+        if (z == null)
+        {
+            throw new IllegalArgumentException("no province called " + name);
+        }
+        return z;
+    }
+
+    private static void expectWords(String[] words, int min, int max)
+    {
+        if (words.length < min || words.length > max)
+        {
+            throw new IllegalArgumentException(words[0] + " takes " + (min == max ? String.valueOf(min - 1) : "at least " + (min - 1))
+                    + " arguments but got " + (words.length - 1));
+        }
+    }
+}
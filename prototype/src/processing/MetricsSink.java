@@ -0,0 +1,7 @@
+package processing;
+
+// Receives the metrics of every resolution while installed with Instrumentation. Called on whichever thread resolved the
+// orders, so implementations shared between games must be thread-safe.
+public interface MetricsSink {
+    void record(ResolutionMetrics metrics);
+}
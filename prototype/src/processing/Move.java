@@ -19,21 +19,36 @@ public class Move extends Order {
 
     public void setDestination(String[] destination)
     {
-        destinationX = Integer.parseInt(destination[0]);
-        destinationY = Integer.parseInt(destination[1]);
-        destinationZ = Integer.parseInt(destination[2]);
+        setDestination(Integer.parseInt(destination[0]), Integer.parseInt(destination[1]),
+                Integer.parseInt(destination[2]));
     }
 
-    public void setDestination(int[] destination)
+    public void setDestination(int x, int y, int z)
     {
-        destinationX = destination[0];
-        destinationY = destination[1];
-        destinationZ = destination[2];
+        Coordinates.checkRange(x, y, z);
+        destinationX = x;
+        destinationY = y;
+        destinationZ = z;
     }
 
-    public int[] getDestination()
+    public int getDestinationX()
     {
-        return new int[] {destinationX, destinationY, destinationZ};
+        return destinationX;
+    }
+
+    public int getDestinationY()
+    {
+        return destinationY;
+    }
+
+    public int getDestinationZ()
+    {
+        return destinationZ;
+    }
+
+    public long getDestinationKey()
+    {
+        return Coordinates.pack(destinationX, destinationY, destinationZ);
     }
 
     public String toString()
@@ -0,0 +1,268 @@
+package processing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class MoveResolver {
+    private final ArrayList<Move> moves;
+    private final HashMap<Long, ArrayList<Move>> incomingMoves = new HashMap<>();
+    private final HashMap<Long, Move> outgoingMoves = new HashMap<>();
+    private final Set<Move> resolvedMoves = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Moves waiting to be visited, and whether each one failed and needs a hold before its own back moves are visited.
+    private final ArrayDeque<Move> pendingMoves = new ArrayDeque<>();
+    private final ArrayDeque<Boolean> pendingHolds = new ArrayDeque<>();
+
+    public MoveResolver(ArrayList<Move> moveOrders)
+    {
+        moves = moveOrders;
+        for (Move move : moves)
+        {
+            incomingMoves.computeIfAbsent(move.getDestinationKey(), key -> new ArrayList<>()).add(move);
+            outgoingMoves.putIfAbsent(move.getLocationKey(), move);
+        }
+    }
+
+    public List<Move> getIncomingMoves(long location)
+    {
+        ArrayList<Move> incoming = incomingMoves.get(location);
+        return incoming == null ? Collections.emptyList() : incoming;
+    }
+
+    // The front of a move chain is a move whose destination isn't being vacated by another move.
+    public ArrayList<Move> getFrontMoves()
+    {
+        ArrayList<Move> frontMoves = new ArrayList<>();
+        for (Move move : moves)
+        {
+            if (!outgoingMoves.containsKey(move.getDestinationKey()))
+            {
+                frontMoves.add(move);
+            }
+        }
+        return frontMoves;
+    }
+
+    // Work backwards from each (already adjudicated) front move through the moves into its location. This visits
+    // moves in the same order as a depth-first recursion would, but keeps its own stack so long chains can't overflow.
+    public void resolveChains(List<Move> frontMoves, ArrayList<Move> successfulMoves, ArrayList<Hold> holdOrders)
+    {
+        resolvedMoves.addAll(frontMoves);
+        for (Move frontMove : frontMoves)
+        {
+            visit(frontMove, successfulMoves, holdOrders);
+        }
+    }
+
+    // Anything not reached from a front move is part of (or feeds into) a closed loop of moves. Head-to-head moves are
+    // won by the strictly stronger side, and longer rotations all succeed unless one of their moves is beaten or tied
+    // by a move from outside. A broken rotation fails at its first losing move and is then resolved as a normal chain.
+    public void resolveCycles(ArrayList<Move> successfulMoves, ArrayList<Hold> holdOrders)
+    {
+        for (Move move : moves)
+        {
+            if (resolvedMoves.contains(move))
+            {
+                continue;
+            }
+
+            ArrayList<Move> cycle = findCycle(move);
+            if (cycle.isEmpty())
+            {
+                fail(move, holdOrders);
+                visit(move, successfulMoves, holdOrders);
+                continue;
+            }
+
+            if (cycle.size() == 1)
+            {
+                // A move to its own location is just a hold.
+                fail(move, holdOrders);
+            }
+            else if (cycle.size() == 2)
+            {
+                Move first = cycle.get(0);
+                Move second = cycle.get(1);
+                if (first.getStrength() > second.getStrength() && beatsOtherMoves(first))
+                {
+                    succeed(first, successfulMoves);
+                    fail(second, holdOrders);
+                }
+                else if (second.getStrength() > first.getStrength() && beatsOtherMoves(second))
+                {
+                    fail(first, holdOrders);
+                    succeed(second, successfulMoves);
+                }
+                else
+                {
+                    fail(first, holdOrders);
+                    fail(second, holdOrders);
+                }
+            }
+            else
+            {
+                Move firstLosingMove = cycle.stream().filter(cycleMove -> !beatsOtherMoves(cycleMove)).findFirst().orElse(null);
+                if (firstLosingMove == null)
+                {
+                    cycle.forEach(cycleMove -> succeed(cycleMove, successfulMoves));
+                }
+                else
+                {
+                    fail(firstLosingMove, holdOrders);
+                    cycle.removeIf(cycleMove -> cycleMove != firstLosingMove);
+                }
+            }
+
+            for (Move cycleMove : cycle)
+            {
+                visit(cycleMove, successfulMoves, holdOrders);
+            }
+        }
+    }
+
+    private ArrayList<Move> findCycle(Move start)
+    {
+        ArrayList<Move> path = new ArrayList<>();
+        IdentityHashMap<Move, Integer> pathPositions = new IdentityHashMap<>();
+        Move current = start;
+        while (current != null && !resolvedMoves.contains(current) && !pathPositions.containsKey(current))
+        {
+            pathPositions.put(current, path.size());
+            path.add(current);
+            current = outgoingMoves.get(current.getDestinationKey());
+        }
+
+        if (current == null || !pathPositions.containsKey(current))
+        {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(path.subList(pathPositions.get(current), path.size()));
+    }
+
+    private boolean beatsOtherMoves(Move move)
+    {
+        return getIncomingMoves(move.getDestinationKey()).stream().allMatch(otherMove ->
+                otherMove == move || move.getStrength() > otherMove.getStrength());
+    }
+
+    private void succeed(Move move, ArrayList<Move> successfulMoves)
+    {
+        resolvedMoves.add(move);
+        move.setSuccessful(true);
+        successfulMoves.add(move);
+    }
+
+    private void fail(Move move, ArrayList<Hold> holdOrders)
+    {
+        resolvedMoves.add(move);
+        holdOrders.add(toHold(move));
+    }
+
+    private void visit(Move root, ArrayList<Move> successfulMoves, ArrayList<Hold> holdOrders)
+    {
+        pendingMoves.push(root);
+        pendingHolds.push(false);
+        while (!pendingMoves.isEmpty())
+        {
+            Move frontMove = pendingMoves.pop();
+            if (pendingHolds.pop())
+            {
+                holdOrders.add(toHold(frontMove));
+            }
+
+            ArrayList<Move> backMoves = new ArrayList<>();
+            boolean locationTaken = false;
+            for (Move move : getIncomingMoves(frontMove.getLocationKey()))
+            {
+                if (!resolvedMoves.contains(move))
+                {
+                    backMoves.add(move);
+                }
+                else if (move.isSuccessful())
+                {
+                    locationTaken = true;
+                }
+            }
+            if (backMoves.isEmpty())
+            {
+                if (locationTaken && !frontMove.isSuccessful())
+                {
+                    // Dislodged by the winner of a head-to-head.
+                    holdOrders.add(toHold(frontMove));
+                }
+                continue;
+            }
+            resolvedMoves.addAll(backMoves);
+
+            Move backMovesMax = backMoves.get(0);
+            int matchingStrengthMoves = 0;
+            for (Move move : backMoves)
+            {
+                if (move.getStrength() > backMovesMax.getStrength())
+                {
+                    backMovesMax = move;
+                    matchingStrengthMoves = 1;
+                }
+                else if (move.getStrength() == backMovesMax.getStrength())
+                {
+                    matchingStrengthMoves++;
+                }
+            }
+
+            Move winningMove = null;
+            if (locationTaken)
+            {
+                // Someone else already moved in, so nothing behind can follow.
+                if (!frontMove.isSuccessful())
+                {
+                    holdOrders.add(toHold(frontMove));
+                }
+            }
+            else if (matchingStrengthMoves > 1)
+            {
+                // Back moves are at most of equal strength, so are not successful.
+            }
+            else if (frontMove.isSuccessful())
+            {
+                winningMove = backMovesMax;
+            }
+            else if (backMovesMax.getStrength() > 1)
+            {
+                winningMove = backMovesMax;
+                holdOrders.add(toHold(frontMove));
+            }
+
+            // Push in reverse so the winning move's chain is finished before the losing moves are visited in order.
+            for (int i = backMoves.size() - 1; i >= 0; i--)
+            {
+                Move move = backMoves.get(i);
+                if (move != winningMove)
+                {
+                    pendingMoves.push(move);
+                    pendingHolds.push(true);
+                }
+            }
+            if (winningMove != null)
+            {
+                winningMove.setSuccessful(true);
+                successfulMoves.add(winningMove);
+                pendingMoves.push(winningMove);
+                pendingHolds.push(false);
+            }
+        }
+    }
+
+    private static Hold toHold(Move move)
+    {
+        Hold hold = new Hold();
+        hold.setLocation(move.getLocationX(), move.getLocationY(), move.getLocationZ());
+        hold.setPlayer(move.getPlayer());
+        hold.setIndex(move.getIndex());
+        return hold;
+    }
+}
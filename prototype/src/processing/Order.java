@@ -5,19 +5,20 @@ public class Order {
     protected int locationY;
     protected int locationZ;
     protected Player player;
+    // Where the order came in the list being resolved, so results worked out separately can be put back in that order.
+    private int index;
 
     public void setLocation(String[] location)
     {
-        locationX = Integer.parseInt(location[0]);
-        locationY = Integer.parseInt(location[1]);
-        locationZ = Integer.parseInt(location[2]);
+        setLocation(Integer.parseInt(location[0]), Integer.parseInt(location[1]), Integer.parseInt(location[2]));
     }
 
-    public void setLocation(int[] location)
+    public void setLocation(int x, int y, int z)
     {
-        locationX = location[0];
-        locationY = location[1];
-        locationZ = location[2];
+        Coordinates.checkRange(x, y, z);
+        locationX = x;
+        locationY = y;
+        locationZ = z;
     }
 
     public void setPlayer(Player owner)
@@ -25,13 +26,38 @@ public class Order {
         player = owner;
     }
 
-    public int[] getLocation()
+    public int getLocationX()
     {
-        return new int[] {locationX, locationY, locationZ};
+        return locationX;
+    }
+
+    public int getLocationY()
+    {
+        return locationY;
+    }
+
+    public int getLocationZ()
+    {
+        return locationZ;
+    }
+
+    public long getLocationKey()
+    {
+        return Coordinates.pack(locationX, locationY, locationZ);
     }
 
     public Player getPlayer()
     {
         return player;
     }
+
+    int getIndex()
+    {
+        return index;
+    }
+
+    void setIndex(int position)
+    {
+        index = position;
+    }
 }
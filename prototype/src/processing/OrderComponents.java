@@ -0,0 +1,77 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// Splits orders into groups that don't share any board. Orders only ever interact through the provinces they name, so
+// each group can be adjudicated on its own.
+final class OrderComponents {
+    private final HashMap<Long, Long> parents = new HashMap<>();
+
+    private OrderComponents()
+    {
+    }
+
+    // Groups are returned in order of their first order, and keep their orders in the original order.
+    static List<ArrayList<Order>> split(List<Order> orders)
+    {
+        OrderComponents components = new OrderComponents();
+        for (Order order : orders)
+        {
+            long board = Coordinates.boardOf(order.getLocationKey());
+            if (order instanceof Move)
+            {
+                components.union(board, Coordinates.boardOf(((Move) order).getDestinationKey()));
+            }
+            else if (order instanceof Support)
+            {
+                Support support = (Support) order;
+                components.union(board, Coordinates.boardOf(support.getSupportLocationKey()));
+                components.union(board, Coordinates.boardOf(support.getSupportDestinationKey()));
+            }
+            else
+            {
+                components.find(board);
+            }
+        }
+
+        LinkedHashMap<Long, ArrayList<Order>> groups = new LinkedHashMap<>();
+        for (Order order : orders)
+        {
+            long root = components.find(Coordinates.boardOf(order.getLocationKey()));
+            groups.computeIfAbsent(root, key -> new ArrayList<>()).add(order);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private long find(long board)
+    {
+        long root = board;
+        Long parent = parents.putIfAbsent(board, board);
+        while (parent != null && parent != root)
+        {
+            root = parent;
+            parent = parents.get(root);
+        }
+
+        // Point everything on the way straight at the root so later lookups are quick.
+        long current = board;
+        while (current != root)
+        {
+            current = parents.put(current, root);
+        }
+        return root;
+    }
+
+    private void union(long first, long second)
+    {
+        long firstRoot = find(first);
+        long secondRoot = find(second);
+        if (firstRoot != secondRoot)
+        {
+            parents.put(secondRoot, firstRoot);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package processing;
+
+// Thrown for badly formed order text, pointing at where in the input the problem is.
+public class OrderParseException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final int column;
+    private final String problem;
+
+    public OrderParseException(int lineNumber, int columnNumber, String problemDescription)
+    {
+        super("Line " + lineNumber + ", column " + columnNumber + ": " + problemDescription);
+        line = lineNumber;
+        column = columnNumber;
+        problem = problemDescription;
+    }
+
+    // Both line and column count from 1.
+    public int getLine()
+    {
+        return line;
+    }
+
+    public int getColumn()
+    {
+        return column;
+    }
+
+    public String getProblem()
+    {
+        return problem;
+    }
+}
@@ -0,0 +1,388 @@
+package processing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+// Reads orders and retreats one line at a time straight out of the input, without splitting it into strings first. The
+// only objects created are the orders themselves. Lines are in the usual format:
+//   hold:    x,y,z          (or x,y,z h)
+//   move:    x,y,z m x,y,z
+//   support: x,y,z s x,y,z x,y,z
+//   retreat: x,y,z m x,y,z, or x,y,z d (or just x,y,z) to disband
+// Blank lines are skipped and a line holding just `r` ends a block of orders.
+public class OrderParser {
+    private static final int BUFFER_SIZE = 8192;
+
+    private interface CharSource {
+        // Fills the start of the buffer and returns how many characters were read, or -1 at the end of the input.
+        int read(char[] buffer) throws IOException;
+    }
+
+    // Text is read in place, while other inputs are read through the buffer.
+    private final CharSequence text;
+    private final CharSource source;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private boolean exhausted;
+    private boolean blockEnded;
+
+    private int line = 1;
+    private int column = 1;
+
+    public OrderParser(CharSequence orderText)
+    {
+        text = orderText;
+        source = null;
+        buffer = null;
+        limit = orderText.length();
+    }
+
+    // Bytes are read as ASCII from the buffer's position to its limit, without moving either.
+    public OrderParser(ByteBuffer bytes)
+    {
+        this(byteBufferSource(bytes.duplicate()), BUFFER_SIZE);
+    }
+
+    public OrderParser(Reader reader)
+    {
+        this(reader::read, BUFFER_SIZE);
+    }
+
+    private OrderParser(CharSource charSource, int bufferSize)
+    {
+        text = null;
+        source = charSource;
+        buffer = new char[bufferSize];
+    }
+
+    public static Order parseOrder(CharSequence text)
+    {
+        OrderParser parser = new OrderParser(text);
+        Order order = parser.nextOrder();
+        parser.expectEndOfInput(order);
+        return order;
+    }
+
+    public static Retreat parseRetreat(CharSequence text)
+    {
+        OrderParser parser = new OrderParser(text);
+        Retreat retreat = parser.nextRetreat();
+        parser.expectEndOfInput(retreat);
+        return retreat;
+    }
+
+    // True once the whole input has been read.
+    public boolean isExhausted()
+    {
+        return exhausted;
+    }
+
+    // Reads orders up to the next `r` line, or returns null once the input is exhausted.
+    public ArrayList<Order> readOrders()
+    {
+        ArrayList<Order> orders = new ArrayList<>();
+        Order order = nextOrder();
+        while (order != null)
+        {
+            orders.add(order);
+            order = nextOrder();
+        }
+        return orders.isEmpty() && !blockEnded ? null : orders;
+    }
+
+    // Reads retreats up to the next `r` line, or returns null once the input is exhausted.
+    public ArrayList<Retreat> readRetreats()
+    {
+        ArrayList<Retreat> retreats = new ArrayList<>();
+        Retreat retreat = nextRetreat();
+        while (retreat != null)
+        {
+            retreats.add(retreat);
+            retreat = nextRetreat();
+        }
+        return retreats.isEmpty() && !blockEnded ? null : retreats;
+    }
+
+    // Returns the next order, or null at the end of a block or of the input.
+    public Order nextOrder()
+    {
+        if (!startLine())
+        {
+            return null;
+        }
+
+        int x = readNumber();
+        expect(',');
+        int y = readNumber();
+        expect(',');
+        int z = readNumber();
+
+        Order order;
+        switch (readOrderType("msh"))
+        {
+            case 'm':
+                Move move = new Move();
+                skipSeparator();
+                move.setDestination(readNumber(), expectThenReadNumber(','), expectThenReadNumber(','));
+                order = move;
+                break;
+            case 's':
+                Support support = new Support();
+                skipSeparator();
+                support.setSupportLocation(readNumber(), expectThenReadNumber(','), expectThenReadNumber(','));
+                skipSeparator();
+                support.setSupportDestination(readNumber(), expectThenReadNumber(','), expectThenReadNumber(','));
+                order = support;
+                break;
+            default:
+                order = new Hold();
+                break;
+        }
+        order.setLocation(x, y, z);
+        endLine();
+        return order;
+    }
+
+    // Returns the next retreat, or null at the end of a block or of the input.
+    public Retreat nextRetreat()
+    {
+        if (!startLine())
+        {
+            return null;
+        }
+
+        int x = readNumber();
+        expect(',');
+        int y = readNumber();
+        expect(',');
+        int z = readNumber();
+
+        Retreat retreat;
+        switch (readOrderType("md"))
+        {
+            case 'm':
+                RetreatMove move = new RetreatMove();
+                skipSeparator();
+                move.setDestination(readNumber(), expectThenReadNumber(','), expectThenReadNumber(','));
+                retreat = move;
+                break;
+            default:
+                retreat = new Disband();
+                break;
+        }
+        retreat.setLocation(x, y, z);
+        endLine();
+        return retreat;
+    }
+
+    // Skips blank lines and returns whether there's an order on the next line, consuming the line if it ends a block.
+    private boolean startLine()
+    {
+        blockEnded = false;
+        while (true)
+        {
+            skipSpaces();
+            int c = peek();
+            if (c == -1)
+            {
+                return false;
+            }
+            if (c == '\n')
+            {
+                newLine();
+            }
+            else if (c == 'r')
+            {
+                advance();
+                endLine();
+                blockEnded = true;
+                return false;
+            }
+            else
+            {
+                return true;
+            }
+        }
+    }
+
+    // Reads the single letter after the location, or returns 0 if the line ends there instead.
+    private char readOrderType(String allowedTypes)
+    {
+        skipSpaces();
+        int c = peek();
+        if (c == -1 || c == '\n')
+        {
+            return 0;
+        }
+        if (allowedTypes.indexOf(c) < 0)
+        {
+            throw error("Expected one of " + String.join(", ", allowedTypes.split("")));
+        }
+        advance();
+        int next = peek();
+        if (next != -1 && next != '\n' && next != ' ' && next != '\t' && next != '\r')
+        {
+            throw error("Expected a single letter order type");
+        }
+        return (char) c;
+    }
+
+    private void endLine()
+    {
+        skipSpaces();
+        int c = peek();
+        if (c == '\n')
+        {
+            newLine();
+        }
+        else if (c != -1)
+        {
+            throw error("Unexpected '" + (char) c + "' after the end of the order");
+        }
+    }
+
+    private void expectEndOfInput(Order order)
+    {
+        if (order == null)
+        {
+            throw error("Expected an order");
+        }
+        if (startLine())
+        {
+            throw error("Expected a single order");
+        }
+    }
+
+    // Numbers have to fit in the range Coordinates can pack, and a number outside it is reported where it starts.
+    private int readNumber()
+    {
+        int startColumn = column;
+        boolean negative = false;
+        if (peek() == '-')
+        {
+            negative = true;
+            advance();
+        }
+        int c = peek();
+        if (c < '0' || c > '9')
+        {
+            throw error("Expected a number");
+        }
+        long largest = negative ? -(long) Coordinates.MIN : Coordinates.MAX;
+        long value = 0;
+        while (c >= '0' && c <= '9')
+        {
+            value = value * 10 + (c - '0');
+            if (value > largest)
+            {
+                throw new OrderParseException(line, startColumn,
+                        "Number is outside the range " + Coordinates.MIN + " to " + Coordinates.MAX);
+            }
+            advance();
+            c = peek();
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private int expectThenReadNumber(char separator)
+    {
+        expect(separator);
+        return readNumber();
+    }
+
+    private void expect(char expected)
+    {
+        if (peek() != expected)
+        {
+            throw error("Expected '" + expected + "'");
+        }
+        advance();
+    }
+
+    private void skipSeparator()
+    {
+        int c = peek();
+        if (c != ' ' && c != '\t')
+        {
+            throw error("Expected a space");
+        }
+        skipSpaces();
+    }
+
+    // Carriage returns are treated as spaces so Windows line endings are accepted.
+    private void skipSpaces()
+    {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r')
+        {
+            advance();
+            c = peek();
+        }
+    }
+
+    private int peek()
+    {
+        if (position == limit)
+        {
+            if (exhausted || source == null)
+            {
+                exhausted = true;
+                return -1;
+            }
+            try
+            {
+                limit = source.read(buffer);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0)
+            {
+                limit = 0;
+                exhausted = true;
+                return -1;
+            }
+        }
+        return text == null ? buffer[position] : text.charAt(position);
+    }
+
+    private void advance()
+    {
+        position++;
+        column++;
+    }
+
+    private void newLine()
+    {
+        position++;
+        line++;
+        column = 1;
+    }
+
+    private OrderParseException error(String problem)
+    {
+        return new OrderParseException(line, column, problem);
+    }
+
+    private static CharSource byteBufferSource(ByteBuffer bytes)
+    {
+        return buffer -> {
+            if (!bytes.hasRemaining())
+            {
+                return -1;
+            }
+            int count = Math.min(buffer.length, bytes.remaining());
+            for (int i = 0; i < count; i++)
+            {
+                buffer[i] = (char) (bytes.get() & 0xff);
+            }
+            return count;
+        };
+    }
+}
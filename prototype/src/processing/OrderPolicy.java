@@ -0,0 +1,16 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Chooses one player's orders in a simulated game. Policies are shared by every game being simulated at once, so they
+// mustn't keep any state of their own between calls, and mustn't change the game.
+public interface OrderPolicy {
+    // Adds an order for each of the player's armies, which are all on active boards and all at different locations.
+    // Armies left without an order don't carry on to the next board. The turn counts from 0 and doesn't include retreats.
+    void addOrders(Game game, int turn, Player player, List<Army> armies, Random random, ArrayList<Order> orders);
+
+    // Adds a retreat or a disband for each of the player's retreating armies.
+    void addRetreats(Game game, Player player, List<Army> retreatingArmies, Random random, ArrayList<Retreat> retreats);
+}
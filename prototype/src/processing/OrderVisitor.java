@@ -0,0 +1,17 @@
+package processing;
+
+// Receives orders as packed locations rather than as order objects, so orders can be listed without creating any.
+// Each kind of order is ignored unless overridden.
+public interface OrderVisitor {
+    default void hold(long location)
+    {
+    }
+
+    default void move(long location, long destination)
+    {
+    }
+
+    default void support(long location, long supportedLocation, long supportedDestination)
+    {
+    }
+}
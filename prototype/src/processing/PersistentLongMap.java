@@ -0,0 +1,178 @@
+package processing;
+
+import java.util.function.Consumer;
+
+// An immutable hash trie keyed by long. Putting a value copies only the path down to it, so old and new versions of a
+// map share everything else. Keys are scrambled with an invertible mix, so two different keys always end up in
+// different slots before the 64 bits run out and there are never any collisions to handle.
+public final class PersistentLongMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentLongMap(Node rootNode, int mapSize)
+    {
+        root = rootNode;
+        size = mapSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty()
+    {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        long hash = Hashing.mix(key);
+        Node node = root;
+        for (int shift = 0; node != null; shift += BITS)
+        {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0)
+            {
+                return null;
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (child instanceof Entry)
+            {
+                Entry entry = (Entry) child;
+                return entry.key == key ? (V) entry.value : null;
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    public PersistentLongMap<V> put(long key, V value)
+    {
+        boolean[] added = new boolean[1];
+        Node newRoot = put(root == null ? new Node(0, new Object[0]) : root, new Entry(key, Hashing.mix(key), value), 0, added);
+        return new PersistentLongMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    public PersistentLongMap<V> remove(long key)
+    {
+        if (get(key) == null)
+        {
+            return this;
+        }
+        return new PersistentLongMap<>(remove(root, key, Hashing.mix(key), 0), size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action)
+    {
+        if (root != null)
+        {
+            root.forEachEntry(entry -> action.accept((V) entry.value));
+        }
+    }
+
+    private static Node put(Node node, Entry entry, int shift, boolean[] added)
+    {
+        int bit = 1 << ((entry.hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0)
+        {
+            added[0] = true;
+            Object[] children = new Object[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            children[index] = entry;
+            System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+            return new Node(node.bitmap | bit, children);
+        }
+
+        Object child = node.children[index];
+        Object replacement;
+        if (child instanceof Node)
+        {
+            replacement = put((Node) child, entry, shift + BITS, added);
+        }
+        else if (((Entry) child).key == entry.key)
+        {
+            replacement = entry;
+        }
+        else
+        {
+            Node split = put(new Node(0, new Object[0]), (Entry) child, shift + BITS, added);
+            replacement = put(split, entry, shift + BITS, added);
+        }
+
+        Object[] children = node.children.clone();
+        children[index] = replacement;
+        return new Node(node.bitmap, children);
+    }
+
+    // Copies the path down to the key's entry without it. Nodes left empty are dropped, so this returns null if the node
+    // held nothing else.
+    private static Node remove(Node node, long key, long hash, int shift)
+    {
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object child = node.children[index];
+        Node replacement = child instanceof Node ? remove((Node) child, key, hash, shift + BITS) : null;
+        if (replacement != null)
+        {
+            Object[] children = node.children.clone();
+            children[index] = replacement;
+            return new Node(node.bitmap, children);
+        }
+        if (node.children.length == 1)
+        {
+            return null;
+        }
+        Object[] children = new Object[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        return new Node(node.bitmap & ~bit, children);
+    }
+
+    private static final class Entry {
+        final long key;
+        final long hash;
+        final Object value;
+
+        Entry(long entryKey, long entryHash, Object entryValue)
+        {
+            key = entryKey;
+            hash = entryHash;
+            value = entryValue;
+        }
+    }
+
+    private static final class Node {
+        final int bitmap;
+        final Object[] children;
+
+        Node(int nodeBitmap, Object[] nodeChildren)
+        {
+            bitmap = nodeBitmap;
+            children = nodeChildren;
+        }
+
+        void forEachEntry(Consumer<Entry> action)
+        {
+            for (Object child : children)
+            {
+                if (child instanceof Entry)
+                {
+                    action.accept((Entry) child);
+                }
+                else
+                {
+                    ((Node) child).forEachEntry(action);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Gives every army a random order: a hold, a move to its own or any bordering province on its own board or a neighbouring one, or a support
+// for a nearby army of the same player to hold or to move within reach. Retreats go anywhere nearby, or disband a third
+// of the time. Destinations are always on boards that exist, as there's nothing to move to anywhere else.
+public class RandomPolicy implements OrderPolicy {
+    @Override
+    public void addOrders(Game game, int turn, Player player, List<Army> armies, Random random, ArrayList<Order> orders)
+    {
+        for (Army army : armies)
+        {
+            int choice = random.nextInt(10);
+            if (choice < 3)
+            {
+                orders.add(hold(army));
+            }
+            else if (choice < 7)
+            {
+                orders.add(move(army, randomDestination(game, army, random)));
+            }
+            else
+            {
+                Army supported = randomNeighbour(army, armies, random);
+                long destination = random.nextBoolean() ? supported.getLocationKey()
+                        : randomDestination(game, army, random);
+                orders.add(support(army, supported.getLocationKey(), destination));
+            }
+        }
+    }
+
+    @Override
+    public void addRetreats(Game game, Player player, List<Army> retreatingArmies, Random random, ArrayList<Retreat> retreats)
+    {
+        for (Army army : retreatingArmies)
+        {
+            if (random.nextInt(3) == 0)
+            {
+                retreats.add(disband(army));
+            }
+            else
+            {
+                retreats.add(retreat(army, randomDestination(game, army, random)));
+            }
+        }
+    }
+
+    // A random province in the army's reach on a random board at most one step from its own in each direction. There's
+    // always at least the army's own board and province to choose.
+    static long randomDestination(Game game, Army army, Random random)
+    {
+        int x = army.getX();
+        int y = army.getY();
+        int boards = 0;
+        int chosenX = x;
+        int chosenY = y;
+        for (int dy = -1; dy <= 1; dy++)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                if (game.getBoard(x + dx, y + dy) != null && random.nextInt(++boards) == 0)
+                {
+                    chosenX = x + dx;
+                    chosenY = y + dy;
+                }
+            }
+        }
+        MapTopology map = game.getMap();
+        int reachStart = map.getReachStart(army.getZ());
+        int reachLength = map.getReachStart(army.getZ() + 1) - reachStart;
+        return Coordinates.pack(chosenX, chosenY, map.getReach(reachStart + random.nextInt(reachLength)));
+    }
+
+    // A random army of the same player at most one board away, which may be the army itself.
+    private static Army randomNeighbour(Army army, List<Army> armies, Random random)
+    {
+        int neighbours = 0;
+        Army chosen = army;
+        for (Army other : armies)
+        {
+            if (Math.abs(other.getX() - army.getX()) <= 1 && Math.abs(other.getY() - army.getY()) <= 1
+                    && random.nextInt(++neighbours) == 0)
+            {
+                chosen = other;
+            }
+        }
+        return chosen;
+    }
+
+    static Hold hold(Army army)
+    {
+        Hold hold = new Hold();
+        hold.setLocation(army.getX(), army.getY(), army.getZ());
+        hold.setPlayer(army.getOwner());
+        return hold;
+    }
+
+    static Move move(Army army, long destination)
+    {
+        Move move = new Move();
+        move.setLocation(army.getX(), army.getY(), army.getZ());
+        move.setDestination(Coordinates.x(destination), Coordinates.y(destination), Coordinates.z(destination));
+        move.setPlayer(army.getOwner());
+        return move;
+    }
+
+    static Support support(Army army, long supportedLocation, long destination)
+    {
+        Support support = new Support();
+        support.setLocation(army.getX(), army.getY(), army.getZ());
+        support.setSupportLocation(Coordinates.x(supportedLocation), Coordinates.y(supportedLocation), Coordinates.z(supportedLocation));
+        support.setSupportDestination(Coordinates.x(destination), Coordinates.y(destination), Coordinates.z(destination));
+        support.setPlayer(army.getOwner());
+        return support;
+    }
+
+    static Disband disband(Army army)
+    {
+        Disband disband = new Disband();
+        disband.setLocation(army.getX(), army.getY(), army.getZ());
+        return disband;
+    }
+
+    static RetreatMove retreat(Army army, long destination)
+    {
+        RetreatMove retreat = new RetreatMove();
+        retreat.setLocation(army.getX(), army.getY(), army.getZ());
+        retreat.setDestination(Coordinates.x(destination), Coordinates.y(destination), Coordinates.z(destination));
+        return retreat;
+    }
+}
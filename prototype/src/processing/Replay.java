@@ -0,0 +1,236 @@
+package processing;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Rebuilds games from a turn log. Every entry is resolved again and checked against what was logged: each move's
+// outcome and the checksum of the state afterwards. A snapshot is kept every snapshotInterval entries, so going back to
+// any earlier entry only replays forward from the nearest snapshot before it.
+public class Replay {
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 64;
+
+    private final ArrayList<TurnLog.Entry> entries = new ArrayList<>();
+    private final int snapshotInterval;
+    // Snapshots after the given number of entries, starting with the start entry itself.
+    private final TreeMap<Integer, GameSnapshot> snapshots = new TreeMap<>();
+
+    public Replay(TurnLog log, int snapshotEvery)
+    {
+        snapshotInterval = snapshotEvery;
+        TurnLog.Reader reader = log.reader();
+        while (reader.hasNext())
+        {
+            entries.add(reader.next());
+        }
+        if (entries.isEmpty() || entries.get(0).kind != TurnLog.START)
+        {
+            throw new IllegalArgumentException("Turn log doesn't start with the state of the game");
+        }
+        for (int i = 1; i < entries.size(); i++)
+        {
+            if (entries.get(i).kind == TurnLog.START)
+            {
+                throw new IllegalArgumentException("Turn log has a second start at entry " + i);
+            }
+        }
+
+        TurnLog.Entry start = entries.get(0);
+        Game game = new Game(start.boards, start.armies, start.retreatingArmies, new ArrayList<>(), start.turn, start.map);
+        check(game, start, 0);
+        snapshots.put(1, game.getSnapshot());
+    }
+
+    public Replay(TurnLog log)
+    {
+        this(log, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    // Replays a saved log and checks every entry, then prints how long each phase took in the slowest resolutions. Given
+    // the game file the log was saved next to, also checks the replay ends in the same position as the saved game.
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: Replay log-file [slowest-count] [game-file]");
+            System.exit(1);
+        }
+        Replay replay = new Replay(TurnLog.read(Path.of(args[0])));
+        int slowestCount = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        TreeMap<Long, String> slowest = new TreeMap<>();
+        Game game = replay.replayTo(1);
+        for (int i = 1; i < replay.getEntryCount(); i++)
+        {
+            replay.apply(game, i);
+            ResolutionMetrics metrics = game.getLastMetrics();
+            slowest.put(metrics.getTotalNanos(), "Entry " + i + ": " + metrics);
+            if (slowest.size() > slowestCount)
+            {
+                slowest.pollFirstEntry();
+            }
+        }
+        System.out.println("Replayed and checked " + replay.getEntryCount() + " entries up to turn " + game.getSnapshot().getTurn());
+        if (args.length > 2)
+        {
+            Game saved = GameFile.load(Path.of(args[2]));
+            if (saved.getPositionHash() != game.getPositionHash())
+            {
+                System.out.println("Replay doesn't end in the same position as " + args[2]);
+                System.exit(1);
+            }
+            System.out.println("Replay ends in the same position as " + args[2]);
+        }
+        for (Map.Entry<Long, String> entry : slowest.descendingMap().entrySet())
+        {
+            System.out.println(entry.getValue());
+        }
+    }
+
+    // Every entry, including the start.
+    public int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    // The game as it was after the first entryCount entries, so 1 gives the starting state.
+    public Game replayTo(int entryCount)
+    {
+        if (entryCount < 1 || entryCount > entries.size())
+        {
+            throw new IndexOutOfBoundsException("No state after " + entryCount + " of " + entries.size() + " entries");
+        }
+        Map.Entry<Integer, GameSnapshot> nearest = snapshots.floorEntry(entryCount);
+        Game game = new Game(nearest.getValue());
+        for (int i = nearest.getKey(); i < entryCount; i++)
+        {
+            apply(game, i);
+        }
+        return game;
+    }
+
+    // Replays the whole log, checking every entry on the way.
+    public Game verify()
+    {
+        return replayTo(entries.size());
+    }
+
+    // Replays the whole log and checks it ends in the same position as the given game, e.g. the game the log came from
+    // or was saved alongside, by comparing position hashes rather than every board and army.
+    public Game verify(Game expected)
+    {
+        Game game = verify();
+        if (game.getPositionHash() != expected.getPositionHash())
+        {
+            throw mismatch(entries.size() - 1, "position " + Long.toHexString(game.getPositionHash())
+                    + " doesn't match the expected " + Long.toHexString(expected.getPositionHash()));
+        }
+        return game;
+    }
+
+    private void apply(Game game, int index)
+    {
+        TurnLog.Entry entry = entries.get(index);
+        if (entry.kind == TurnLog.ORDERS)
+        {
+            ArrayList<Order> orders = copyOrders(entry.orders);
+            game.resolveOrders(new ArrayList<>(orders), entry.retreatPhase);
+            int move = 0;
+            for (Order order : orders)
+            {
+                if (order instanceof Move && ((Move) order).isSuccessful() != entry.moveOutcomes[move++])
+                {
+                    throw mismatch(index, "move " + order + " succeeded when it didn't, or the other way around");
+                }
+            }
+        }
+        else
+        {
+            game.resolveRetreats(copyRetreats(entry.retreats));
+        }
+        check(game, entry, index);
+        if ((index + 1) % snapshotInterval == 0)
+        {
+            snapshots.putIfAbsent(index + 1, game.getSnapshot());
+        }
+    }
+
+    private static void check(Game game, TurnLog.Entry entry, int index)
+    {
+        long checksum = game.getSnapshot().getChecksum();
+        if (checksum != entry.checksum)
+        {
+            throw mismatch(index, "checksum " + Long.toHexString(checksum) + " doesn't match the logged "
+                    + Long.toHexString(entry.checksum));
+        }
+    }
+
+    private static IllegalStateException mismatch(int index, String problem)
+    {
+        return new IllegalStateException("Replay differs from the log at entry " + index + ": " + problem);
+    }
+
+    // Resolution annotates orders with strengths and outcomes, so every replay needs its own copies.
+    private static ArrayList<Order> copyOrders(ArrayList<Order> orders)
+    {
+        ArrayList<Order> copies = new ArrayList<>(orders.size());
+        for (Order order : orders)
+        {
+            copies.add(copyOrder(order));
+        }
+        return copies;
+    }
+
+    // A fresh, unresolved copy of an order.
+    static Order copyOrder(Order order)
+    {
+        Order copy;
+        if (order instanceof Move)
+        {
+            Move move = (Move) order;
+            Move moveCopy = new Move();
+            moveCopy.setDestination(move.getDestinationX(), move.getDestinationY(), move.getDestinationZ());
+            copy = moveCopy;
+        }
+        else if (order instanceof Support)
+        {
+            Support support = (Support) order;
+            Support supportCopy = new Support();
+            supportCopy.setSupportLocation(support.getSupportLocationX(), support.getSupportLocationY(), support.getSupportLocationZ());
+            supportCopy.setSupportDestination(support.getSupportDestinationX(), support.getSupportDestinationY(), support.getSupportDestinationZ());
+            copy = supportCopy;
+        }
+        else
+        {
+            copy = new Hold();
+        }
+        copy.setLocation(order.getLocationX(), order.getLocationY(), order.getLocationZ());
+        copy.setPlayer(order.getPlayer());
+        return copy;
+    }
+
+    private static ArrayList<Retreat> copyRetreats(ArrayList<Retreat> retreats)
+    {
+        ArrayList<Retreat> copies = new ArrayList<>(retreats.size());
+        for (Retreat retreat : retreats)
+        {
+            Retreat copy;
+            if (retreat instanceof RetreatMove)
+            {
+                RetreatMove move = (RetreatMove) retreat;
+                RetreatMove moveCopy = new RetreatMove();
+                moveCopy.setDestination(move.getDestinationX(), move.getDestinationY(), move.getDestinationZ());
+                copy = moveCopy;
+            }
+            else
+            {
+                copy = new Disband();
+            }
+            copy.setLocation(retreat.getLocationX(), retreat.getLocationY(), retreat.getLocationZ());
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
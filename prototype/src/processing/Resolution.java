@@ -0,0 +1,47 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// The outcome of adjudicating a set of orders, before any of it has been applied to the game. Every list is in the order
+// the orders were given in, with a hold coming where the order it stands for did, so applying a resolution gives the same
+// game however the orders were split up to adjudicate them.
+class Resolution {
+    private static final Comparator<Order> BY_INDEX = Comparator.comparingInt(Order::getIndex);
+
+    final ArrayList<Support> supportOrders;
+    final ArrayList<Move> moveOrders;
+    final ArrayList<Move> successfulMoves;
+    final ArrayList<Hold> holdOrders;
+    int supportsCut;
+
+    Resolution(ArrayList<Support> supports, ArrayList<Move> moves, ArrayList<Move> successful, ArrayList<Hold> holds)
+    {
+        supportOrders = supports;
+        moveOrders = moves;
+        successfulMoves = successful;
+        holdOrders = holds;
+        // Supports and moves are split out in order already; the outcomes come in the order they were worked out.
+        successfulMoves.sort(BY_INDEX);
+        holdOrders.sort(BY_INDEX);
+    }
+
+    static Resolution merge(List<Resolution> resolutions)
+    {
+        Resolution merged = new Resolution(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (Resolution resolution : resolutions)
+        {
+            merged.supportOrders.addAll(resolution.supportOrders);
+            merged.moveOrders.addAll(resolution.moveOrders);
+            merged.successfulMoves.addAll(resolution.successfulMoves);
+            merged.holdOrders.addAll(resolution.holdOrders);
+            merged.supportsCut += resolution.supportsCut;
+        }
+        merged.supportOrders.sort(BY_INDEX);
+        merged.moveOrders.sort(BY_INDEX);
+        merged.successfulMoves.sort(BY_INDEX);
+        merged.holdOrders.sort(BY_INDEX);
+        return merged;
+    }
+}
@@ -0,0 +1,93 @@
+package processing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// What one resolution cost: the time spent in each phase, counts of what happened, and (when sampled) how many bytes were
+// allocated. When groups of orders are adjudicated in parallel, their phases and allocation are added up over every
+// thread that worked on them, so the total time can be more than the time the resolution took.
+public class ResolutionMetrics {
+    public static final String ORDERS_FILTERED = "orders filtered";
+    public static final String SUPPORTS_CUT = "supports cut";
+    public static final String RETREATS_FLAGGED = "retreats flagged";
+    public static final String BOARDS_CREATED = "boards created";
+
+    private final LinkedHashMap<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> counts = new LinkedHashMap<>();
+    private long phaseStart = System.nanoTime();
+    private long allocatedBytes = -1;
+
+    // Records the time since the previous phase ended (or since construction) against the given phase.
+    public void endPhase(String phase)
+    {
+        long now = System.nanoTime();
+        phaseNanos.merge(phase, now - phaseStart, Long::sum);
+        phaseStart = now;
+    }
+
+    // Starts timing the next phase from now, leaving the time since the previous phase ended out.
+    void restartPhase()
+    {
+        phaseStart = System.nanoTime();
+    }
+
+    // Adds another set of metrics' phase times, counts and allocation to these.
+    void add(ResolutionMetrics other)
+    {
+        other.phaseNanos.forEach((phase, nanos) -> phaseNanos.merge(phase, nanos, Long::sum));
+        other.counts.forEach((counter, count) -> counts.merge(counter, count, Long::sum));
+        if (other.allocatedBytes >= 0)
+        {
+            addAllocatedBytes(other.allocatedBytes);
+        }
+    }
+
+    public void count(String counter, long amount)
+    {
+        counts.merge(counter, amount, Long::sum);
+    }
+
+    void addAllocatedBytes(long bytes)
+    {
+        allocatedBytes = allocatedBytes < 0 ? bytes : allocatedBytes + bytes;
+    }
+
+    public Map<String, Long> getPhaseNanos()
+    {
+        return Collections.unmodifiableMap(phaseNanos);
+    }
+
+    public long getTotalNanos()
+    {
+        return phaseNanos.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public Map<String, Long> getCounts()
+    {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public long getCount(String counter)
+    {
+        return counts.getOrDefault(counter, 0L);
+    }
+
+    // Bytes allocated by the resolving thread, or -1 if this resolution wasn't sampled.
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("Resolution took " + getTotalNanos() / 1000 + "us:");
+        phaseNanos.forEach((phase, nanos) -> builder.append("\n  ").append(phase).append(": ").append(nanos / 1000).append("us"));
+        counts.forEach((counter, count) -> builder.append("\n  ").append(counter).append(": ").append(count));
+        if (allocatedBytes >= 0)
+        {
+            builder.append("\n  allocated: ").append(allocatedBytes / 1024).append("KB");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package processing;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Totals the metrics of every resolution, for any number of games resolving at once, and can publish them over JMX.
+public class ResolutionStats implements MetricsSink, ResolutionStatsMXBean {
+    public static final String OBJECT_NAME = "processing:type=ResolutionStats";
+
+    private final LongAdder resolutions = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder sampledResolutions = new LongAdder();
+    private final LongAdder sampledAllocatedBytes = new LongAdder();
+
+    // Registers a new set of stats with the platform MBean server and installs it as the metrics sink.
+    public static ResolutionStats register(int allocationSampleInterval)
+    {
+        ResolutionStats stats = new ResolutionStats();
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName(OBJECT_NAME));
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Couldn't register " + OBJECT_NAME, e);
+        }
+        Instrumentation.install(stats, allocationSampleInterval);
+        return stats;
+    }
+
+    @Override
+    public void record(ResolutionMetrics metrics)
+    {
+        resolutions.increment();
+        metrics.getPhaseNanos().forEach((phase, nanos) -> {
+            totalNanos.add(nanos);
+            phaseNanos.computeIfAbsent(phase, key -> new LongAdder()).add(nanos);
+        });
+        metrics.getCounts().forEach((counter, count) -> counts.computeIfAbsent(counter, key -> new LongAdder()).add(count));
+        if (metrics.getAllocatedBytes() >= 0)
+        {
+            sampledResolutions.increment();
+            sampledAllocatedBytes.add(metrics.getAllocatedBytes());
+        }
+    }
+
+    @Override
+    public long getResolutions()
+    {
+        return resolutions.sum();
+    }
+
+    @Override
+    public long getTotalNanos()
+    {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos()
+    {
+        return sums(phaseNanos);
+    }
+
+    @Override
+    public Map<String, Long> getCounts()
+    {
+        return sums(counts);
+    }
+
+    @Override
+    public long getSampledResolutions()
+    {
+        return sampledResolutions.sum();
+    }
+
+    @Override
+    public long getSampledAllocatedBytes()
+    {
+        return sampledAllocatedBytes.sum();
+    }
+
+    @Override
+    public void reset()
+    {
+        resolutions.reset();
+        totalNanos.reset();
+        phaseNanos.clear();
+        counts.clear();
+        sampledResolutions.reset();
+        sampledAllocatedBytes.reset();
+    }
+
+    public String toString()
+    {
+        long count = getResolutions();
+        StringBuilder builder = new StringBuilder(count + " resolutions took " + getTotalNanos() / 1000 + "us:");
+        getPhaseNanos().forEach((phase, nanos) -> builder.append("\n  ").append(phase).append(": ").append(nanos / 1000).append("us"));
+        getCounts().forEach((counter, total) -> builder.append("\n  ").append(counter).append(": ").append(total));
+        long sampled = getSampledResolutions();
+        if (sampled > 0)
+        {
+            builder.append("\n  allocated: ").append(getSampledAllocatedBytes() / sampled / 1024)
+                    .append("KB per resolution (").append(sampled).append(" sampled)");
+        }
+        return builder.toString();
+    }
+
+    private static Map<String, Long> sums(ConcurrentHashMap<String, LongAdder> adders)
+    {
+        TreeMap<String, Long> sums = new TreeMap<>();
+        adders.forEach((key, adder) -> sums.put(key, adder.sum()));
+        return sums;
+    }
+}
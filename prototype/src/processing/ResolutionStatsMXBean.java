@@ -0,0 +1,19 @@
+package processing;
+
+import java.util.Map;
+
+public interface ResolutionStatsMXBean {
+    long getResolutions();
+
+    long getTotalNanos();
+
+    Map<String, Long> getPhaseNanos();
+
+    Map<String, Long> getCounts();
+
+    long getSampledResolutions();
+
+    long getSampledAllocatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,67 @@
+package processing;
+
+// How much of a long game to keep at hand. Displayed orders are kept for the latest orderResolutions resolutions and
+// snapshots for the latest snapshotCount turns. Inactive boards more than archiveHorizon boards behind the end of their
+// row are moved into a compact archive, and come back by themselves if an order reaches them again. The game as a whole,
+// including its checksums and turn log, is the same whatever the policy; only what's kept in memory changes.
+public final class RetentionPolicy {
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    public static final RetentionPolicy KEEP_EVERYTHING = new RetentionPolicy(UNLIMITED, UNLIMITED, UNLIMITED);
+
+    private final int orderResolutions;
+    private final int snapshotCount;
+    private final int archiveHorizon;
+
+    public RetentionPolicy(int ordersKept, int snapshotsKept, int horizon)
+    {
+        if (ordersKept < 0 || snapshotsKept < 1 || horizon < 1)
+        {
+            throw new IllegalArgumentException("Retention needs at least 0 resolutions of orders, 1 snapshot and a horizon of"
+                    + " 1 board, not " + ordersKept + ", " + snapshotsKept + " and " + horizon);
+        }
+        orderResolutions = ordersKept;
+        snapshotCount = snapshotsKept;
+        archiveHorizon = horizon;
+    }
+
+    // Parses "orders,snapshots,horizon", where any of them can be "all" to keep everything of that kind.
+    public static RetentionPolicy parse(String text)
+    {
+        String[] parts = text.split(",");
+        if (parts.length != 3)
+        {
+            throw new IllegalArgumentException("Expected orders,snapshots,horizon but got " + text);
+        }
+        return new RetentionPolicy(parseLimit(parts[0]), parseLimit(parts[1]), parseLimit(parts[2]));
+    }
+
+    private static int parseLimit(String text)
+    {
+        return text.trim().equals("all") ? UNLIMITED : Integer.parseInt(text.trim());
+    }
+
+    public int getOrderResolutions()
+    {
+        return orderResolutions;
+    }
+
+    public int getSnapshotCount()
+    {
+        return snapshotCount;
+    }
+
+    public int getArchiveHorizon()
+    {
+        return archiveHorizon;
+    }
+
+    public String toString()
+    {
+        return limitText(orderResolutions) + "," + limitText(snapshotCount) + "," + limitText(archiveHorizon);
+    }
+
+    private static String limitText(int limit)
+    {
+        return limit == UNLIMITED ? "all" : Integer.toString(limit);
+    }
+}
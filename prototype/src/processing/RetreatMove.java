@@ -8,14 +8,36 @@ public class RetreatMove extends Retreat {
 
     public void setDestination(String[] destination)
     {
-        destinationX = Integer.parseInt(destination[0]);
-        destinationY = Integer.parseInt(destination[1]);
-        destinationZ = Integer.parseInt(destination[2]);
+        setDestination(Integer.parseInt(destination[0]), Integer.parseInt(destination[1]),
+                Integer.parseInt(destination[2]));
     }
 
-    public int[] getDestination()
+    public void setDestination(int x, int y, int z)
     {
-        return new int[] {destinationX, destinationY, destinationZ};
+        Coordinates.checkRange(x, y, z);
+        destinationX = x;
+        destinationY = y;
+        destinationZ = z;
+    }
+
+    public int getDestinationX()
+    {
+        return destinationX;
+    }
+
+    public int getDestinationY()
+    {
+        return destinationY;
+    }
+
+    public int getDestinationZ()
+    {
+        return destinationZ;
+    }
+
+    public long getDestinationKey()
+    {
+        return Coordinates.pack(destinationX, destinationY, destinationZ);
     }
 
     public String toString()
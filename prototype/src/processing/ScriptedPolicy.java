@@ -0,0 +1,86 @@
+package processing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+// Plays a fixed script of orders, one block per turn, read once up front in the usual order format with each block
+// ended by `r`. Each turn the player's armies get the script's orders for their locations, and any armies the script
+// doesn't cover, or every army once the script has run out, are left to the fallback policy, as are all retreats.
+public class ScriptedPolicy implements OrderPolicy {
+    private final ArrayList<ArrayList<Order>> script = new ArrayList<>();
+    private final OrderPolicy fallback;
+
+    public ScriptedPolicy(List<? extends List<Order>> turns, OrderPolicy fallbackPolicy)
+    {
+        for (List<Order> turn : turns)
+        {
+            script.add(new ArrayList<>(turn));
+        }
+        fallback = fallbackPolicy;
+    }
+
+    public static ScriptedPolicy read(Reader reader, OrderPolicy fallbackPolicy) throws IOException
+    {
+        ArrayList<ArrayList<Order>> turns = new ArrayList<>();
+        OrderParser parser = new OrderParser(reader);
+        try
+        {
+            for (ArrayList<Order> turn = parser.readOrders(); turn != null; turn = parser.readOrders())
+            {
+                turns.add(turn);
+            }
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        return new ScriptedPolicy(turns, fallbackPolicy);
+    }
+
+    @Override
+    public void addOrders(Game game, int turn, Player player, List<Army> armies, Random random, ArrayList<Order> orders)
+    {
+        if (turn >= script.size())
+        {
+            fallback.addOrders(game, turn, player, armies, random, orders);
+            return;
+        }
+
+        HashMap<Long, Order> scriptedOrders = new HashMap<>();
+        for (Order order : script.get(turn))
+        {
+            scriptedOrders.putIfAbsent(order.getLocationKey(), order);
+        }
+        ArrayList<Army> unscriptedArmies = new ArrayList<>();
+        for (Army army : armies)
+        {
+            Order order = scriptedOrders.get(army.getLocationKey());
+            if (order == null)
+            {
+                unscriptedArmies.add(army);
+            }
+            else
+            {
+                // Resolution annotates orders with their outcomes, so every game needs its own copies.
+                Order copy = Replay.copyOrder(order);
+                copy.setPlayer(player);
+                orders.add(copy);
+            }
+        }
+        if (!unscriptedArmies.isEmpty())
+        {
+            fallback.addOrders(game, turn, player, unscriptedArmies, random, orders);
+        }
+    }
+
+    @Override
+    public void addRetreats(Game game, Player player, List<Army> retreatingArmies, Random random, ArrayList<Retreat> retreats)
+    {
+        fallback.addRetreats(game, player, retreatingArmies, random, retreats);
+    }
+}
@@ -0,0 +1,55 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+// Orders from a tree search with a fixed time budget each turn, keeping count of how many playouts it's managed. Retreats
+// aren't searched, and come from the greedy policy.
+public class SearchPolicy implements OrderPolicy {
+    private final TreeSearch search;
+    private final long budgetMillis;
+    private final OrderPolicy retreatPolicy = new GreedyPolicy();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder playouts = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    public SearchPolicy(TreeSearch treeSearch, long millis)
+    {
+        search = treeSearch;
+        budgetMillis = millis;
+    }
+
+    @Override
+    public void addOrders(Game game, int turn, Player player, List<Army> armies, Random random, ArrayList<Order> orders)
+    {
+        if (armies.isEmpty())
+        {
+            return;
+        }
+        SearchResult result = search.search(game, player, budgetMillis, random.nextLong());
+        orders.addAll(result.getOrders());
+        searches.increment();
+        playouts.add(result.getPlayouts());
+        searchNanos.add(result.getElapsedNanos());
+    }
+
+    @Override
+    public void addRetreats(Game game, Player player, List<Army> retreatingArmies, Random random, ArrayList<Retreat> retreats)
+    {
+        retreatPolicy.addRetreats(game, player, retreatingArmies, random, retreats);
+    }
+
+    public double getPlayoutsPerSecond()
+    {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : playouts.sum() * 1e9 / nanos;
+    }
+
+    public String toString()
+    {
+        return String.format("%d searches, %d playouts, %.0f playouts/s", searches.sum(), playouts.sum(),
+                getPlayoutsPerSecond());
+    }
+}
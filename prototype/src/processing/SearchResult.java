@@ -0,0 +1,77 @@
+package processing;
+
+import java.util.Collections;
+import java.util.List;
+
+// The orders a search chose, and how hard it looked: playouts per second is what decides how strong the search can be on
+// a given machine in a given time.
+public class SearchResult {
+    private final List<Order> orders;
+    private final long playouts;
+    private final long elapsedNanos;
+    private final int choiceCount;
+    private final int chosenIndex;
+    private final long chosenVisits;
+    private final double chosenValue;
+    private final long positions;
+    private final long transpositions;
+
+    SearchResult(List<Order> chosenOrders, long playoutCount, long nanos, int choices, int chosen, long visits, double value,
+                 long positionCount, long transpositionCount)
+    {
+        orders = Collections.unmodifiableList(chosenOrders);
+        playouts = playoutCount;
+        elapsedNanos = nanos;
+        choiceCount = choices;
+        chosenIndex = chosen;
+        chosenVisits = visits;
+        chosenValue = value;
+        positions = positionCount;
+        transpositions = transpositionCount;
+    }
+
+    // Fresh orders that haven't been resolved, for the player's armies on active boards.
+    public List<Order> getOrders()
+    {
+        return orders;
+    }
+
+    public long getPlayouts()
+    {
+        return playouts;
+    }
+
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    public double getPlayoutsPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+    }
+
+    // The player's average reward from the chosen orders, as a share of the armies on active boards.
+    public double getValue()
+    {
+        return chosenValue;
+    }
+
+    // Distinct positions in the tree, and how many times a new pair of choices led to one of them that was already there.
+    public long getPositions()
+    {
+        return positions;
+    }
+
+    public long getTranspositions()
+    {
+        return transpositions;
+    }
+
+    public String toString()
+    {
+        return String.format("%d playouts in %dms, %.0f playouts/s, %d positions, %d transpositions, chose %d of %d with %d"
+                + " visits and value %.3f", playouts, elapsedNanos / 1000000, getPlayoutsPerSecond(), positions,
+                transpositions, chosenIndex + 1, choiceCount, chosenVisits, chosenValue);
+    }
+}
@@ -0,0 +1,45 @@
+package processing;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+// Runs tasks one at a time, in the order they were submitted, on a shared executor. Nothing ever waits for a turn: a
+// task just queues behind the ones before it, and the next one is handed over when it finishes.
+public class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private Runnable active;
+
+    public SerialExecutor(Executor sharedExecutor)
+    {
+        executor = sharedExecutor;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task)
+    {
+        tasks.add(() -> {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                scheduleNext();
+            }
+        });
+        if (active == null)
+        {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext()
+    {
+        active = tasks.poll();
+        if (active != null)
+        {
+            executor.execute(active);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package processing;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Totals the outcomes of simulated games, for any number of games finishing at once. Blue's timelines branch off below
+// the first one and orange's above it, so the rows either side of row 0 are the branches each player has made.
+public class SimulationStats {
+    private final LongAdder games = new LongAdder();
+    private final LongAdder failedGames = new LongAdder();
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder retreatPhases = new LongAdder();
+    private final LongAdder retreats = new LongAdder();
+    private final LongAdder timelines = new LongAdder();
+    private final LongAccumulator maxTimelines = new LongAccumulator(Long::max, 0);
+    private final LongAdder blueBranches = new LongAdder();
+    private final LongAdder orangeBranches = new LongAdder();
+    private final LongAdder blueArmies = new LongAdder();
+    private final LongAdder orangeArmies = new LongAdder();
+    private final LongAdder blueLeads = new LongAdder();
+    private final LongAdder orangeLeads = new LongAdder();
+    private volatile String firstFailure;
+    private volatile long elapsedNanos;
+
+    void recordGame(int gameTurns, int gameRetreatPhases, int gameRetreats, int minY, int maxY, int blueArmyCount,
+                    int orangeArmyCount)
+    {
+        games.increment();
+        turns.add(gameTurns);
+        retreatPhases.add(gameRetreatPhases);
+        retreats.add(gameRetreats);
+        timelines.add(maxY - minY + 1);
+        maxTimelines.accumulate(maxY - minY + 1);
+        blueBranches.add(-minY);
+        orangeBranches.add(maxY);
+        blueArmies.add(blueArmyCount);
+        orangeArmies.add(orangeArmyCount);
+        if (blueArmyCount > orangeArmyCount)
+        {
+            blueLeads.increment();
+        }
+        else if (orangeArmyCount > blueArmyCount)
+        {
+            orangeLeads.increment();
+        }
+    }
+
+    void recordFailure(long seed, RuntimeException e)
+    {
+        failedGames.increment();
+        if (firstFailure == null)
+        {
+            firstFailure = "game with seed " + seed + ": " + e;
+        }
+    }
+
+    void setElapsedNanos(long nanos)
+    {
+        elapsedNanos = nanos;
+    }
+
+    public long getGames()
+    {
+        return games.sum();
+    }
+
+    public long getFailedGames()
+    {
+        return failedGames.sum();
+    }
+
+    public long getTurns()
+    {
+        return turns.sum();
+    }
+
+    public long getRetreatPhases()
+    {
+        return retreatPhases.sum();
+    }
+
+    public long getRetreats()
+    {
+        return retreats.sum();
+    }
+
+    public long getTimelines()
+    {
+        return timelines.sum();
+    }
+
+    public long getMaxTimelines()
+    {
+        return maxTimelines.get();
+    }
+
+    public long getBranches(Player player)
+    {
+        return player == Player.BLUE ? blueBranches.sum() : player == Player.ORANGE ? orangeBranches.sum() : 0;
+    }
+
+    // Armies on active boards at the end of every game.
+    public long getArmies(Player player)
+    {
+        return player == Player.BLUE ? blueArmies.sum() : player == Player.ORANGE ? orangeArmies.sum() : 0;
+    }
+
+    // Games the player ended with more armies on active boards than the other.
+    public long getLeads(Player player)
+    {
+        return player == Player.BLUE ? blueLeads.sum() : player == Player.ORANGE ? orangeLeads.sum() : 0;
+    }
+
+    public double getGamesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : (getGames() + getFailedGames()) * 1e9 / elapsedNanos;
+    }
+
+    public String toString()
+    {
+        long gameCount = Math.max(getGames(), 1);
+        long turnCount = Math.max(getTurns(), 1);
+        StringBuilder builder = new StringBuilder();
+        builder.append(getGames()).append(" games (").append(getFailedGames()).append(" failed) in ")
+                .append(elapsedNanos / 1000000).append("ms, ").append(String.format("%.0f", getGamesPerSecond()))
+                .append(" games/s");
+        builder.append(String.format("%n  turns: %.1f per game", (double) getTurns() / gameCount));
+        builder.append(String.format("%n  retreats: needed after %.1f%% of turns, %.2f armies per game",
+                100.0 * getRetreatPhases() / turnCount, (double) getRetreats() / gameCount));
+        builder.append(String.format("%n  timelines: %.2f per game, at most %d", (double) getTimelines() / gameCount,
+                getMaxTimelines()));
+        for (Player player : new Player[] { Player.BLUE, Player.ORANGE })
+        {
+            builder.append(String.format("%n  %s: %.2f branches and %.2f armies on active boards per game, ahead in %.1f%% of games",
+                    player, (double) getBranches(player) / gameCount, (double) getArmies(player) / gameCount,
+                    100.0 * getLeads(player) / gameCount));
+        }
+        if (firstFailure != null)
+        {
+            builder.append("\n  first failure: ").append(firstFailure);
+        }
+        return builder.toString();
+    }
+}
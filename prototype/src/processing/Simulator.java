@@ -0,0 +1,242 @@
+package processing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Plays games against itself with no user interface, for gathering statistics over a great many of them. Each player's
+// orders come from a policy and are built directly as orders, with no text in between. Games are independent, so they're
+// played in parallel, each from its own seed so any one of them can be played again by itself.
+public class Simulator {
+    // Simulated games are never displayed or saved, so there's no need to keep their orders or more than one snapshot.
+    private static final RetentionPolicy RETENTION = new RetentionPolicy(0, 1, RetentionPolicy.UNLIMITED);
+    private static final Player[] PLAYERS = { Player.BLUE, Player.ORANGE };
+
+    private final OrderPolicy bluePolicy;
+    private final OrderPolicy orangePolicy;
+    private final int turnsPerGame;
+    private final MapTopology map;
+
+    public Simulator(OrderPolicy blue, OrderPolicy orange, int turns)
+    {
+        this(blue, orange, turns, MapTopology.DEFAULT);
+    }
+
+    public Simulator(OrderPolicy blue, OrderPolicy orange, int turns, MapTopology gameMap)
+    {
+        bluePolicy = blue;
+        orangePolicy = orange;
+        turnsPerGame = turns;
+        map = gameMap;
+    }
+
+    // Usage: Simulator [--games n] [--turns n] [--blue policy] [--orange policy] [--seed n] [--map map], where each policy
+    // is random, greedy, search:<milliseconds per turn> or script:<order file>, whose script falls back to random orders,
+    // and the map is a map file or grid:<width>x<height>. Prints what happened to standard output.
+    public static void main(String[] args) throws IOException
+    {
+        int games = 10000;
+        int turns = 20;
+        long seed = 0;
+        OrderPolicy blue = new RandomPolicy();
+        OrderPolicy orange = new RandomPolicy();
+        MapTopology map = MapTopology.DEFAULT;
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            switch (args[i])
+            {
+                case "--games":
+                    games = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--turns":
+                    turns = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--blue":
+                    blue = parsePolicy(args[i + 1]);
+                    break;
+                case "--orange":
+                    orange = parsePolicy(args[i + 1]);
+                    break;
+                case "--map":
+                    map = parseMap(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Usage: Simulator [--games n] [--turns n] [--blue policy] [--orange policy] [--seed n] [--map map]");
+                    System.exit(1);
+            }
+        }
+        System.out.println(new Simulator(blue, orange, turns, map).run(games, seed));
+    }
+
+    public static MapTopology parseMap(String name) throws IOException
+    {
+        if (name.startsWith("grid:"))
+        {
+            String[] size = name.substring("grid:".length()).split("x");
+            if (size.length != 2)
+            {
+                throw new IllegalArgumentException("Expected grid:<width>x<height> but got " + name);
+            }
+            return MapTopology.grid(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        }
+        return MapTopology.load(Path.of(name));
+    }
+
+    public static OrderPolicy parsePolicy(String name) throws IOException
+    {
+        if (name.equals("random"))
+        {
+            return new RandomPolicy();
+        }
+        if (name.equals("greedy"))
+        {
+            return new GreedyPolicy();
+        }
+        if (name.startsWith("search:"))
+        {
+            return new SearchPolicy(new TreeSearch(), Long.parseLong(name.substring("search:".length())));
+        }
+        if (name.startsWith("script:"))
+        {
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(name.substring("script:".length())), StandardCharsets.UTF_8))
+            {
+                return ScriptedPolicy.read(reader, new RandomPolicy());
+            }
+        }
+        throw new IllegalArgumentException("Unknown policy " + name + ", expected random, greedy, search:<millis> or script:<file>");
+    }
+
+    // Plays games with seeds from seed up, all at once.
+    public SimulationStats run(int games, long seed)
+    {
+        SimulationStats stats = new SimulationStats();
+        long start = System.nanoTime();
+        IntStream.range(0, games).parallel().forEach(game -> play(seed + game, stats));
+        stats.setElapsedNanos(System.nanoTime() - start);
+        return stats;
+    }
+
+    // Plays one game and records how it went. A game that breaks the rules engine is recorded as a failure instead.
+    public Game play(long seed, SimulationStats stats)
+    {
+        Random random = new Random(seed);
+        Game game = new Game(map);
+        game.setRetentionPolicy(RETENTION);
+        ArrayList<Army> armies = new ArrayList<>();
+        ArrayList<Order> orders = new ArrayList<>();
+        ArrayList<Retreat> retreats = new ArrayList<>();
+        int retreatPhases = 0;
+        int retreatCount = 0;
+        try
+        {
+            for (int turn = 0; turn < turnsPerGame; turn++)
+            {
+                int retreating = playTurn(game, turn, random, armies, orders, retreats);
+                if (retreating > 0)
+                {
+                    retreatPhases++;
+                    retreatCount += retreating;
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            stats.recordFailure(seed, e);
+            return game;
+        }
+
+        collectArmies(game, Player.BLUE, armies);
+        int blueArmies = armies.size();
+        collectArmies(game, Player.ORANGE, armies);
+        int orangeArmies = armies.size();
+        ArmyStore store = game.getArmyStore();
+        stats.recordGame(turnsPerGame, retreatPhases, retreatCount, store.getMinY(), store.getMaxY(), blueArmies, orangeArmies);
+        return game;
+    }
+
+    // Plays one turn of orders, then the retreats if any are needed, and returns how many armies had to retreat. The lists
+    // are only there to be reused from turn to turn.
+    int playTurn(Game game, int turn, Random random, ArrayList<Army> armies, ArrayList<Order> orders, ArrayList<Retreat> retreats)
+    {
+        orders.clear();
+        for (Player player : PLAYERS)
+        {
+            collectArmies(game, player, armies);
+            policyFor(player).addOrders(game, turn, player, armies, random, orders);
+        }
+        game.resolveOrders(orders, false);
+        return playRetreats(game, random, armies, retreats);
+    }
+
+    // Resolves the retreats each player's policy gives, if any are needed, and returns how many armies had to retreat.
+    int playRetreats(Game game, Random random, ArrayList<Army> armies, ArrayList<Retreat> retreats)
+    {
+        if (!game.isRetreatNeeded())
+        {
+            return 0;
+        }
+        int retreating = game.getRetreatingArmies().size();
+        retreats.clear();
+        for (Player player : PLAYERS)
+        {
+            armies.clear();
+            for (Army army : game.getRetreatingArmies())
+            {
+                if (army.getOwner() == player)
+                {
+                    armies.add(army);
+                }
+            }
+            policyFor(player).addRetreats(game, player, armies, random, retreats);
+        }
+        game.resolveRetreats(retreats);
+        return retreating;
+    }
+
+    private OrderPolicy policyFor(Player player)
+    {
+        return player == Player.BLUE ? bluePolicy : orangePolicy;
+    }
+
+    // The player's armies on active boards, only one per location.
+    static void collectArmies(Game game, Player player, ArrayList<Army> armies)
+    {
+        armies.clear();
+        ArmyStore store = game.getArmyStore();
+        for (Board board : game.getBoards())
+        {
+            if (!board.isActive())
+            {
+                continue;
+            }
+            int first = store.firstArmyOnBoard(board.getX(), board.getY());
+            for (int army = first; army >= 0; army = store.nextArmyOnBoard(army))
+            {
+                if (store.getOwner(army) == player && !hasArmyBefore(store, first, army))
+                {
+                    armies.add(store.getArmy(army));
+                }
+            }
+        }
+    }
+
+    private static boolean hasArmyBefore(ArmyStore store, int first, int army)
+    {
+        for (int earlier = first; earlier != army; earlier = store.nextArmyOnBoard(earlier))
+        {
+            if (store.getZ(earlier) == store.getZ(army))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
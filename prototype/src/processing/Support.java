@@ -10,26 +10,69 @@ public class Support extends Order {
 
     public void setSupportLocation(String[] location)
     {
-        supportLocationX = Integer.parseInt(location[0]);
-        supportLocationY = Integer.parseInt(location[1]);
-        supportLocationZ = Integer.parseInt(location[2]);
+        setSupportLocation(Integer.parseInt(location[0]), Integer.parseInt(location[1]), Integer.parseInt(location[2]));
     }
 
     public void setSupportDestination(String[] destination)
     {
-        supportDestinationX = Integer.parseInt(destination[0]);
-        supportDestinationY = Integer.parseInt(destination[1]);
-        supportDestinationZ = Integer.parseInt(destination[2]);
+        setSupportDestination(Integer.parseInt(destination[0]), Integer.parseInt(destination[1]),
+                Integer.parseInt(destination[2]));
     }
 
-    public int[] getSupportLocation()
+    public void setSupportLocation(int x, int y, int z)
     {
-        return new int[] {supportLocationX, supportLocationY, supportLocationZ};
+        Coordinates.checkRange(x, y, z);
+        supportLocationX = x;
+        supportLocationY = y;
+        supportLocationZ = z;
     }
 
-    public int[] getSupportDestination()
+    public void setSupportDestination(int x, int y, int z)
     {
-        return new int[] {supportDestinationX, supportDestinationY, supportDestinationZ};
+        Coordinates.checkRange(x, y, z);
+        supportDestinationX = x;
+        supportDestinationY = y;
+        supportDestinationZ = z;
+    }
+
+    public int getSupportLocationX()
+    {
+        return supportLocationX;
+    }
+
+    public int getSupportLocationY()
+    {
+        return supportLocationY;
+    }
+
+    public int getSupportLocationZ()
+    {
+        return supportLocationZ;
+    }
+
+    public long getSupportLocationKey()
+    {
+        return Coordinates.pack(supportLocationX, supportLocationY, supportLocationZ);
+    }
+
+    public int getSupportDestinationX()
+    {
+        return supportDestinationX;
+    }
+
+    public int getSupportDestinationY()
+    {
+        return supportDestinationY;
+    }
+
+    public int getSupportDestinationZ()
+    {
+        return supportDestinationZ;
+    }
+
+    public long getSupportDestinationKey()
+    {
+        return Coordinates.pack(supportDestinationX, supportDestinationY, supportDestinationZ);
     }
 
     public String toString()
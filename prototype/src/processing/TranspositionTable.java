@@ -0,0 +1,88 @@
+package processing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// A fixed-size table from position hashes to values, e.g. search nodes, so a position reached by different orders is
+// only worked on once. Any number of threads can use it at once without locking: a slot is claimed by swapping its hash
+// in, and its value is set the same way, so the first value stored for a hash is the one that stays. Hashes are spread
+// well already, so they're used as they are, with linear probing over a few slots. When those are all taken the value
+// just isn't stored, so the table never grows and works as a cache.
+public final class TranspositionTable<V> {
+    private static final long EMPTY = 0;
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicLongArray keys;
+    private final AtomicReferenceArray<V> values;
+    private final int mask;
+    private final LongAdder size = new LongAdder();
+
+    public TranspositionTable(int capacity)
+    {
+        int slots = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) * 2 - 1);
+        keys = new AtomicLongArray(slots);
+        values = new AtomicReferenceArray<>(slots);
+        mask = slots - 1;
+    }
+
+    public V get(long hash)
+    {
+        long key = toKey(hash);
+        for (int probe = 0, slot = (int) key & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask)
+        {
+            long slotKey = keys.get(slot);
+            if (slotKey == key)
+            {
+                // Null if another thread has claimed the slot but not set its value yet.
+                return values.get(slot);
+            }
+            if (slotKey == EMPTY)
+            {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Stores the value unless there's one for the hash already, and returns that one, or null if there wasn't one
+    // (whether or not there was room for this one).
+    public V putIfAbsent(long hash, V value)
+    {
+        long key = toKey(hash);
+        for (int probe = 0, slot = (int) key & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask)
+        {
+            long slotKey = keys.get(slot);
+            if (slotKey == EMPTY && keys.compareAndSet(slot, EMPTY, key))
+            {
+                slotKey = key;
+            }
+            else if (slotKey == EMPTY)
+            {
+                // Another thread claimed the slot first, perhaps for the same hash.
+                slotKey = keys.get(slot);
+            }
+            if (slotKey == key)
+            {
+                if (values.compareAndSet(slot, null, value))
+                {
+                    size.increment();
+                    return null;
+                }
+                return values.get(slot);
+            }
+        }
+        return null;
+    }
+
+    public long size()
+    {
+        return size.sum();
+    }
+
+    // 0 marks an empty slot, so a hash of 0 shares its key with a hash of 1.
+    private static long toKey(long hash)
+    {
+        return hash == EMPTY ? 1 : hash;
+    }
+}
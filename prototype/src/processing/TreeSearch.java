@@ -0,0 +1,359 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Monte Carlo tree search for a computer player, within a time budget. Both players order at once, so each node keeps
+// separate statistics for each player's choices (decoupled UCT): each player picks its own choice by UCB1 over how its
+// choices have done, whatever the other player picked, and the pair of choices leads to a child node. A player's choices
+// at a node are whole sets of orders, one from the greedy policy and the rest sampled from the random policy, as there are
+// far too many combinations of orders to try them all.
+//
+// Nodes hold their game and never change it. Children are made by resolving orders on a copy (copy-make), and each
+// playout carries on from a copy with random orders for a few turns and scores the share of armies on active boards.
+// Playouts run on several threads over the same tree without locks: statistics are atomic counters, a choice's visit is
+// counted on the way down and its reward only on the way back up, so other threads meanwhile see it as a loss and try
+// something else, and a new child is only kept by the thread that gets it into the tree first. Different pairs of
+// choices often end up in the same position, e.g. when moves bounce, so nodes are shared through a transposition table
+// keyed by position hash, which makes the tree a graph.
+public class TreeSearch {
+    private static final Player[] PLAYERS = { Player.BLUE, Player.ORANGE };
+    // Rewards are between 0 and 1, and are summed as longs in millionths.
+    private static final double REWARD_SCALE = 1_000_000;
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int TABLE_CAPACITY = 1 << 16;
+
+    private final int choicesPerPlayer;
+    private final int rolloutTurns;
+    private final int threadCount;
+    private final OrderPolicy greedyPolicy = new GreedyPolicy();
+    private final OrderPolicy randomPolicy = new RandomPolicy();
+    private final Simulator rollouts = new Simulator(randomPolicy, randomPolicy, 0);
+
+    public TreeSearch(int choices, int turns, int threads)
+    {
+        if (choices < 1 || turns < 1 || threads < 1)
+        {
+            throw new IllegalArgumentException("Search needs at least 1 choice per player, 1 rollout turn and 1 thread, but got "
+                    + choices + ", " + turns + " and " + threads);
+        }
+        choicesPerPlayer = choices;
+        rolloutTurns = turns;
+        threadCount = threads;
+    }
+
+    public TreeSearch()
+    {
+        this(8, 6, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Usage: TreeSearch [--millis n] [--threads n] [--turns n] [--seed n]. Plays a game with blue searching for the
+    // given number of milliseconds each turn against random orders for orange, printing how each search went.
+    public static void main(String[] args)
+    {
+        long millis = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int turns = 10;
+        long seed = 0;
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            switch (args[i])
+            {
+                case "--millis":
+                    millis = Long.parseLong(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--turns":
+                    turns = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Usage: TreeSearch [--millis n] [--threads n] [--turns n] [--seed n]");
+                    System.exit(1);
+            }
+        }
+        SearchPolicy blue = new SearchPolicy(new TreeSearch(8, 6, threads), millis);
+        Simulator simulator = new Simulator(blue, new RandomPolicy(), turns);
+        SimulationStats stats = new SimulationStats();
+        simulator.play(seed, stats);
+        System.out.println(stats);
+        System.out.println(blue);
+    }
+
+    // Searches until the time is up, and returns the orders for the player's armies that were tried the most.
+    public SearchResult search(Game game, Player player, long budgetMillis, long seed)
+    {
+        return search(game, player, budgetMillis, Long.MAX_VALUE, seed);
+    }
+
+    // Stops early after the given number of playouts. The game mustn't change while it's being searched.
+    public SearchResult search(Game game, Player player, long budgetMillis, long playoutLimit, long seed)
+    {
+        if (game.isRetreatNeeded())
+        {
+            throw new IllegalStateException("Can only search for orders, not retreats");
+        }
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000;
+        Node root = new Node(game, 0, new Random(seed));
+        TranspositionTable<Node> positions = new TranspositionTable<>(TABLE_CAPACITY);
+        positions.putIfAbsent(game.getPositionHash(), root);
+        AtomicLong playouts = new AtomicLong();
+        AtomicLong transpositions = new AtomicLong();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            Random random = new Random(seed + i + 1);
+            workers[i] = new Thread(() -> {
+                try
+                {
+                    runPlayouts(root, positions, deadline, playouts, playoutLimit, transpositions, random);
+                }
+                catch (RuntimeException e)
+                {
+                    failure.compareAndSet(null, e);
+                }
+            }, "tree-search-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers)
+        {
+            try
+            {
+                worker.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+
+        int side = player.ordinal();
+        int best = 0;
+        for (int choice = 1; choice < root.choiceCounts[side]; choice++)
+        {
+            if (root.visits.get(root.slot(side, choice)) > root.visits.get(root.slot(side, best)))
+            {
+                best = choice;
+            }
+        }
+        long visits = root.visits.get(root.slot(side, best));
+        double value = visits == 0 ? 0 : root.rewards.get(root.slot(side, best)) / REWARD_SCALE / visits;
+        return new SearchResult(root.choices.get(side).get(best), Math.min(playouts.get(), playoutLimit), System.nanoTime() - start,
+                root.choiceCounts[side], best, visits, value, positions.size(), transpositions.get());
+    }
+
+    private void runPlayouts(Node root, TranspositionTable<Node> positions, long deadline, AtomicLong playouts,
+                             long playoutLimit, AtomicLong transpositions, Random random)
+    {
+        ArrayList<Node> path = new ArrayList<>();
+        int[] pathChoices = new int[2 * 64];
+        ArrayList<Army> armies = new ArrayList<>();
+        ArrayList<Order> orders = new ArrayList<>();
+        ArrayList<Retreat> retreats = new ArrayList<>();
+        while (System.nanoTime() < deadline && playouts.getAndIncrement() < playoutLimit)
+        {
+            // Go down the tree until a pair of choices that hasn't been tried yet, and add a child for it.
+            path.clear();
+            Node node = root;
+            Node leaf = null;
+            while (leaf == null)
+            {
+                int blueChoice = node.select(Player.BLUE.ordinal());
+                int orangeChoice = node.select(Player.ORANGE.ordinal());
+                if (path.size() * 2 == pathChoices.length)
+                {
+                    pathChoices = Arrays.copyOf(pathChoices, pathChoices.length * 2);
+                }
+                pathChoices[path.size() * 2] = blueChoice;
+                pathChoices[path.size() * 2 + 1] = orangeChoice;
+                path.add(node);
+                int childSlot = blueChoice * choicesPerPlayer + orangeChoice;
+                Node child = node.children.get(childSlot);
+                if (child == null)
+                {
+                    Game childGame = play(node, blueChoice, orangeChoice, random, armies, retreats);
+                    long position = childGame.getPositionHash();
+                    child = positions.get(position);
+                    if (child == null)
+                    {
+                        child = new Node(childGame, node.depth + 1, random);
+                        Node existing = positions.putIfAbsent(position, child);
+                        child = existing == null ? child : existing;
+                    }
+                    if (child.game != childGame)
+                    {
+                        transpositions.incrementAndGet();
+                    }
+                    if (!node.children.compareAndSet(childSlot, null, child))
+                    {
+                        child = node.children.get(childSlot);
+                    }
+                    leaf = child;
+                }
+                else
+                {
+                    node = child;
+                }
+            }
+
+            double blueReward = rollout(leaf, random, armies, orders, retreats);
+            long blueScore = Math.round(blueReward * REWARD_SCALE);
+            long orangeScore = Math.round((1 - blueReward) * REWARD_SCALE);
+            for (int i = 0; i < path.size(); i++)
+            {
+                Node pathNode = path.get(i);
+                pathNode.rewards.addAndGet(pathNode.slot(Player.BLUE.ordinal(), pathChoices[i * 2]), blueScore);
+                pathNode.rewards.addAndGet(pathNode.slot(Player.ORANGE.ordinal(), pathChoices[i * 2 + 1]), orangeScore);
+            }
+        }
+    }
+
+    // The game after both players' chosen orders, and any retreats the random policy gives.
+    private Game play(Node node, int blueChoice, int orangeChoice, Random random, ArrayList<Army> armies, ArrayList<Retreat> retreats)
+    {
+        List<Order> blueOrders = node.choices.get(Player.BLUE.ordinal()).get(blueChoice);
+        List<Order> orangeOrders = node.choices.get(Player.ORANGE.ordinal()).get(orangeChoice);
+        ArrayList<Order> orders = new ArrayList<>(blueOrders.size() + orangeOrders.size());
+        orders.addAll(blueOrders);
+        orders.addAll(orangeOrders);
+        Game game = node.game.resolvedCopy(orders);
+        rollouts.playRetreats(game, random, armies, retreats);
+        return game;
+    }
+
+    // Plays random orders on from the leaf for a few turns, and returns blue's share of the armies on active boards at
+    // the end. The first turn is played on a copy, and the rest on that copy.
+    private double rollout(Node leaf, Random random, ArrayList<Army> armies, ArrayList<Order> orders, ArrayList<Retreat> retreats)
+    {
+        orders.clear();
+        for (Player player : PLAYERS)
+        {
+            Simulator.collectArmies(leaf.game, player, armies);
+            randomPolicy.addOrders(leaf.game, leaf.depth, player, armies, random, orders);
+        }
+        Game game = leaf.game.resolvedCopy(orders);
+        rollouts.playRetreats(game, random, armies, retreats);
+        for (int turn = 1; turn < rolloutTurns; turn++)
+        {
+            rollouts.playTurn(game, leaf.depth + turn, random, armies, orders, retreats);
+        }
+        return blueShare(game);
+    }
+
+    private static double blueShare(Game game)
+    {
+        ArmyStore store = game.getArmyStore();
+        int provinces = game.getMap().getProvinceCount();
+        int blue = 0;
+        int orange = 0;
+        for (Board board : game.getActiveBoards())
+        {
+            for (int z = 0; z < provinces; z++)
+            {
+                Player owner = store.getOwnerAt(Coordinates.pack(board.getX(), board.getY(), z));
+                if (owner == Player.BLUE)
+                {
+                    blue++;
+                }
+                else if (owner == Player.ORANGE)
+                {
+                    orange++;
+                }
+            }
+        }
+        return blue + orange == 0 ? 0.5 : (double) blue / (blue + orange);
+    }
+
+    // A game in the tree, each player's choices of orders in it, and how each choice has done. Everything but the
+    // statistics and the children is set before the node is put in the tree, and never changes after.
+    private final class Node {
+        private final Game game;
+        private final int depth;
+        // Each player's choices, in the order of PLAYERS, which is also the order of their ordinals.
+        private final ArrayList<List<List<Order>>> choices = new ArrayList<>(PLAYERS.length);
+        private final int[] choiceCounts = new int[PLAYERS.length];
+        // Visits and summed rewards of each choice, in a slot per player and choice.
+        private final AtomicLongArray visits = new AtomicLongArray(PLAYERS.length * choicesPerPlayer);
+        private final AtomicLongArray rewards = new AtomicLongArray(PLAYERS.length * choicesPerPlayer);
+        // A child for each pair of choices, blue's first.
+        private final AtomicReferenceArray<Node> children = new AtomicReferenceArray<>(choicesPerPlayer * choicesPerPlayer);
+
+        private Node(Game nodeGame, int nodeDepth, Random random)
+        {
+            game = nodeGame;
+            depth = nodeDepth;
+            ArrayList<Army> armies = new ArrayList<>();
+            for (Player player : PLAYERS)
+            {
+                int side = player.ordinal();
+                Simulator.collectArmies(game, player, armies);
+                // With no armies there's only nothing to order.
+                int count = armies.isEmpty() ? 1 : choicesPerPlayer;
+                ArrayList<List<Order>> playerChoices = new ArrayList<>(count);
+                for (int choice = 0; choice < count; choice++)
+                {
+                    ArrayList<Order> orders = new ArrayList<>(armies.size());
+                    (choice == 0 ? greedyPolicy : randomPolicy).addOrders(game, depth, player, armies, random, orders);
+                    playerChoices.add(orders);
+                }
+                choices.add(playerChoices);
+                choiceCounts[side] = count;
+            }
+            // Work out the active boards now, as other threads will read them and working them out changes the game.
+            game.getActiveBoards();
+        }
+
+        private int slot(int side, int choice)
+        {
+            return side * choicesPerPlayer + choice;
+        }
+
+        // Counts a visit to the player's best choice by UCB1 and returns it, trying every choice once first.
+        private int select(int side)
+        {
+            long total = 0;
+            for (int choice = 0; choice < choiceCounts[side]; choice++)
+            {
+                total += visits.get(slot(side, choice));
+            }
+            double logTotal = Math.log(Math.max(total, 1));
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int choice = 0; choice < choiceCounts[side]; choice++)
+            {
+                long choiceVisits = visits.get(slot(side, choice));
+                if (choiceVisits == 0)
+                {
+                    best = choice;
+                    break;
+                }
+                double value = rewards.get(slot(side, choice)) / REWARD_SCALE / choiceVisits
+                        + EXPLORATION * Math.sqrt(logTotal / choiceVisits);
+                if (value > bestValue)
+                {
+                    bestValue = value;
+                    best = choice;
+                }
+            }
+            visits.incrementAndGet(slot(side, best));
+            return best;
+        }
+    }
+}
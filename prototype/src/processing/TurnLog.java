@@ -0,0 +1,417 @@
+package processing;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// An append-only record of everything a game has resolved, compact enough to keep for the whole game. It starts with the
+// state the game was started (or loaded, or restored) in, followed by one entry per resolution holding the orders or
+// retreats, whether each move succeeded and a checksum of the state afterwards. Replay rebuilds and checks games from it.
+//
+// Header: magic "5DDL", format version (short), reserved (short). Entries follow, each starting with its kind (byte),
+// with locations as packed coordinates (longs) and players as ordinals or -1 (bytes):
+//   start:    turn (int), the game's map as MapTopology encodes it, board count (int) then key and active (byte) for
+//             each board in creation order, army count (int) then location and owner for each army, retreat count (int)
+//             then the same for each retreat, checksum (long)
+//   orders:   retreat phase (byte), order count (int), then each order's type (byte), player and location, and for a move
+//             its destination or for a support its supported location and destination; then a byte per move for
+//             whether it succeeded, and the checksum
+//   retreats: retreat count (int), then each retreat's type (byte) and location, and for a move its destination; then
+//             the checksum
+// Orders are logged with the players resolution gave them, which resolves them exactly as before when replayed.
+public class TurnLog {
+    private static final int MAGIC = 0x35444c4c;
+    private static final short VERSION = 2;
+    private static final int INITIAL_CAPACITY = 256;
+
+    static final byte START = 0;
+    static final byte ORDERS = 1;
+    static final byte RETREATS = 2;
+
+    private static final byte HOLD = 0;
+    private static final byte MOVE = 1;
+    private static final byte SUPPORT = 2;
+    private static final byte DISBAND = 0;
+    private static final byte RETREAT_MOVE = 1;
+
+    private static final Player[] PLAYERS = Player.values();
+
+    private ByteBuffer buffer;
+    private int entryCount;
+
+    public TurnLog()
+    {
+        buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+    }
+
+    public TurnLog(TurnLog other)
+    {
+        buffer = ByteBuffer.allocate(Math.max(other.buffer.position(), INITIAL_CAPACITY));
+        buffer.put(other.buffer.array(), 0, other.buffer.position());
+        entryCount = other.entryCount;
+    }
+
+    private TurnLog(ByteBuffer contents, int entries)
+    {
+        buffer = contents;
+        entryCount = entries;
+    }
+
+    // Every entry, including the start.
+    public int getEntryCount()
+    {
+        return entryCount;
+    }
+
+    public int getByteCount()
+    {
+        return buffer.position();
+    }
+
+    // A read-only view of the log so far, from its header to the end of the latest entry.
+    public ByteBuffer getBytes()
+    {
+        ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        bytes.flip();
+        return bytes;
+    }
+
+    void recordStart(GameSnapshot snapshot)
+    {
+        MapTopology map = snapshot.getMap();
+        List<BoardSnapshot> boards = snapshot.getAllBoards();
+        int armyCount = 0;
+        for (BoardSnapshot board : boards)
+        {
+            armyCount += board.getArmies().size();
+        }
+        ensureCapacity(1 + 4 + map.getEncodedSize() + 4 + boards.size() * 9 + 4 + armyCount * 9 + 4 + snapshot.getRetreatingArmies().size() * 9 + 8);
+        buffer.put(START);
+        buffer.putInt(snapshot.getTurn());
+        map.encode(buffer);
+        buffer.putInt(boards.size());
+        for (BoardSnapshot board : boards)
+        {
+            buffer.putLong(board.getKey());
+            buffer.put((byte) (board.isActive() ? 1 : 0));
+        }
+        buffer.putInt(armyCount);
+        for (BoardSnapshot board : boards)
+        {
+            board.getArmies().forEach(this::putArmy);
+        }
+        buffer.putInt(snapshot.getRetreatingArmies().size());
+        snapshot.getRetreatingArmies().forEach(this::putArmy);
+        buffer.putLong(snapshot.getChecksum());
+        entryCount++;
+    }
+
+    void recordOrders(List<Order> orders, boolean retreatPhase, long checksum)
+    {
+        int moveCount = 0;
+        for (Order order : orders)
+        {
+            if (order instanceof Move)
+            {
+                moveCount++;
+            }
+        }
+        ensureCapacity(1 + 1 + 4 + orders.size() * (1 + 1 + 8 + 16) + moveCount + 8);
+        buffer.put(ORDERS);
+        buffer.put((byte) (retreatPhase ? 1 : 0));
+        buffer.putInt(orders.size());
+        for (Order order : orders)
+        {
+            putOrder(order);
+        }
+        for (Order order : orders)
+        {
+            if (order instanceof Move)
+            {
+                buffer.put((byte) (((Move) order).isSuccessful() ? 1 : 0));
+            }
+        }
+        buffer.putLong(checksum);
+        entryCount++;
+    }
+
+    void recordRetreats(List<Retreat> retreats, long checksum)
+    {
+        ensureCapacity(1 + 4 + retreats.size() * (1 + 8 + 8) + 8);
+        buffer.put(RETREATS);
+        buffer.putInt(retreats.size());
+        for (Retreat retreat : retreats)
+        {
+            buffer.put(retreat instanceof RetreatMove ? RETREAT_MOVE : DISBAND);
+            buffer.putLong(retreat.getLocationKey());
+            if (retreat instanceof RetreatMove)
+            {
+                buffer.putLong(((RetreatMove) retreat).getDestinationKey());
+            }
+        }
+        buffer.putLong(checksum);
+        entryCount++;
+    }
+
+    // Writes next to the target and moves it into place, as GameFile does.
+    public void write(Path path) throws IOException
+    {
+        ByteBuffer bytes = getBytes();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (bytes.hasRemaining())
+            {
+                channel.write(bytes);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static TurnLog read(Path path) throws IOException
+    {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        try
+        {
+            checkHeader(bytes, path.toString());
+            int entries = 0;
+            Reader reader = new Reader(bytes);
+            while (reader.hasNext())
+            {
+                reader.next();
+                entries++;
+            }
+            ByteBuffer contents = ByteBuffer.allocate(Math.max(bytes.limit(), INITIAL_CAPACITY));
+            contents.put(bytes.rewind());
+            return new TurnLog(contents, entries);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e)
+        {
+            throw new IOException(path + " is truncated or corrupt", e);
+        }
+    }
+
+    Reader reader()
+    {
+        ByteBuffer bytes = getBytes();
+        checkHeader(bytes, "Turn log");
+        return new Reader(bytes);
+    }
+
+    private static void checkHeader(ByteBuffer bytes, String name)
+    {
+        if (bytes.getInt() != MAGIC)
+        {
+            throw new IllegalArgumentException(name + " is not a turn log");
+        }
+        short version = bytes.getShort();
+        if (version != VERSION)
+        {
+            throw new IllegalArgumentException(name + " was written in format version " + version + ", expected " + VERSION);
+        }
+        bytes.getShort();
+    }
+
+    private void ensureCapacity(int bytes)
+    {
+        if (buffer.remaining() < bytes)
+        {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            grown.put(buffer.array(), 0, buffer.position());
+            buffer = grown;
+        }
+    }
+
+    private void putArmy(Army army)
+    {
+        buffer.putLong(army.getLocationKey());
+        buffer.put((byte) army.getOwner().ordinal());
+    }
+
+    private void putOrder(Order order)
+    {
+        buffer.put(order instanceof Move ? MOVE : order instanceof Support ? SUPPORT : HOLD);
+        buffer.put((byte) (order.getPlayer() == null ? -1 : order.getPlayer().ordinal()));
+        buffer.putLong(order.getLocationKey());
+        if (order instanceof Move)
+        {
+            buffer.putLong(((Move) order).getDestinationKey());
+        }
+        else if (order instanceof Support)
+        {
+            Support support = (Support) order;
+            buffer.putLong(support.getSupportLocationKey());
+            buffer.putLong(support.getSupportDestinationKey());
+        }
+    }
+
+    // One decoded entry. Start entries have the saved game's state; the others have their orders or retreats.
+    static final class Entry {
+        byte kind;
+        int turn;
+        MapTopology map;
+        ArrayList<Board> boards;
+        ArmyStore armies;
+        ArrayList<Army> retreatingArmies;
+        boolean retreatPhase;
+        ArrayList<Order> orders;
+        boolean[] moveOutcomes;
+        ArrayList<Retreat> retreats;
+        long checksum;
+    }
+
+    // Decodes entries one after another. Orders and retreats come out new, ready to be resolved again.
+    static final class Reader {
+        private final ByteBuffer bytes;
+
+        private Reader(ByteBuffer logBytes)
+        {
+            bytes = logBytes;
+        }
+
+        boolean hasNext()
+        {
+            return bytes.hasRemaining();
+        }
+
+        Entry next()
+        {
+            Entry entry = new Entry();
+            entry.kind = bytes.get();
+            switch (entry.kind)
+            {
+                case START:
+                    readStart(entry);
+                    break;
+                case ORDERS:
+                    readOrders(entry);
+                    break;
+                case RETREATS:
+                    readRetreats(entry);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown turn log entry " + entry.kind);
+            }
+            entry.checksum = bytes.getLong();
+            return entry;
+        }
+
+        private void readStart(Entry entry)
+        {
+            entry.turn = bytes.getInt();
+            entry.map = MapTopology.decode(bytes);
+            int boardCount = bytes.getInt();
+            entry.boards = new ArrayList<>(boardCount);
+            for (int i = 0; i < boardCount; i++)
+            {
+                long key = bytes.getLong();
+                Board board = new Board(Coordinates.x(key), Coordinates.y(key));
+                board.setActive(bytes.get() != 0);
+                entry.boards.add(board);
+            }
+            int armyCount = bytes.getInt();
+            entry.armies = new ArmyStore(armyCount);
+            for (int i = 0; i < armyCount; i++)
+            {
+                long location = bytes.getLong();
+                entry.armies.add(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location), PLAYERS[bytes.get()]);
+            }
+            int retreatCount = bytes.getInt();
+            entry.retreatingArmies = new ArrayList<>(retreatCount);
+            for (int i = 0; i < retreatCount; i++)
+            {
+                long location = bytes.getLong();
+                entry.retreatingArmies.add(new Army(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location),
+                        PLAYERS[bytes.get()]));
+            }
+        }
+
+        private void readOrders(Entry entry)
+        {
+            entry.retreatPhase = bytes.get() != 0;
+            int orderCount = bytes.getInt();
+            entry.orders = new ArrayList<>(orderCount);
+            int moveCount = 0;
+            for (int i = 0; i < orderCount; i++)
+            {
+                byte type = bytes.get();
+                byte player = bytes.get();
+                long location = bytes.getLong();
+                Order order;
+                if (type == MOVE)
+                {
+                    Move move = new Move();
+                    long destination = bytes.getLong();
+                    move.setDestination(Coordinates.x(destination), Coordinates.y(destination), Coordinates.z(destination));
+                    order = move;
+                    moveCount++;
+                }
+                else if (type == SUPPORT)
+                {
+                    Support support = new Support();
+                    long supportLocation = bytes.getLong();
+                    long supportDestination = bytes.getLong();
+                    support.setSupportLocation(Coordinates.x(supportLocation), Coordinates.y(supportLocation), Coordinates.z(supportLocation));
+                    support.setSupportDestination(Coordinates.x(supportDestination), Coordinates.y(supportDestination), Coordinates.z(supportDestination));
+                    order = support;
+                }
+                else if (type == HOLD)
+                {
+                    order = new Hold();
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Unknown order type " + type);
+                }
+                order.setLocation(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location));
+                order.setPlayer(player < 0 ? null : PLAYERS[player]);
+                entry.orders.add(order);
+            }
+            entry.moveOutcomes = new boolean[moveCount];
+            for (int i = 0; i < moveCount; i++)
+            {
+                entry.moveOutcomes[i] = bytes.get() != 0;
+            }
+        }
+
+        private void readRetreats(Entry entry)
+        {
+            int retreatCount = bytes.getInt();
+            entry.retreats = new ArrayList<>(retreatCount);
+            for (int i = 0; i < retreatCount; i++)
+            {
+                byte type = bytes.get();
+                long location = bytes.getLong();
+                Retreat retreat;
+                if (type == RETREAT_MOVE)
+                {
+                    RetreatMove move = new RetreatMove();
+                    long destination = bytes.getLong();
+                    move.setDestination(Coordinates.x(destination), Coordinates.y(destination), Coordinates.z(destination));
+                    retreat = move;
+                }
+                else if (type == DISBAND)
+                {
+                    retreat = new Disband();
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Unknown retreat type " + type);
+                }
+                retreat.setLocation(Coordinates.x(location), Coordinates.y(location), Coordinates.z(location));
+                entry.retreats.add(retreat);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package processing;
+
+import java.util.NoSuchElementException;
+
+// Thrown by a GameHost for an id that doesn't belong to any game it holds.
+public class UnknownGameException extends NoSuchElementException {
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+
+    public UnknownGameException(long gameId)
+    {
+        super("No game " + gameId);
+        id = gameId;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+}
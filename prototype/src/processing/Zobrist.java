@@ -0,0 +1,37 @@
+package processing;
+
+// Zobrist-style keys for hashing positions. Every army for a player at a location, every board and every active board
+// has its own 64-bit key, and a position's hash is the sum of the keys of everything in it, so adding or taking away
+// anything only needs its key adding or subtracting. Keys come from mixing packed coordinates rather than from a table
+// of random numbers, as the multiverse has no bounds. Keys are summed rather than xored so that two armies of the same
+// player at the same location don't cancel each other out.
+final class Zobrist {
+    private static final int BOARD = Player.values().length;
+    private static final int ACTIVE = BOARD + 1;
+    private static final int RETREAT = ACTIVE + 1;
+
+    private Zobrist()
+    {
+    }
+
+    static long army(long location, Player owner)
+    {
+        return Hashing.combine(location, owner.ordinal());
+    }
+
+    static long board(long boardKey)
+    {
+        return Hashing.combine(boardKey, BOARD);
+    }
+
+    static long active(long boardKey)
+    {
+        return Hashing.combine(boardKey, ACTIVE);
+    }
+
+    // An army waiting to retreat, which isn't on its board yet.
+    static long retreat(long location, Player owner)
+    {
+        return Hashing.combine(location, RETREAT + owner.ordinal());
+    }
+}